@@ -0,0 +1,61 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Shared plumbing for the benchmark programs: opens the volume named in
+ * example.properties and times repeated runs of a piece of work.
+ */
+public abstract class BenchmarkSupport {
+	private static final Logger logger = Logger.getLogger(BenchmarkSupport.class.getName());
+
+	protected interface Work {
+		void run() throws IOException;
+	}
+
+	protected static FileSystem openFileSystem(Map<String, ?> env) throws IOException, URISyntaxException {
+		Properties properties = new Properties();
+		properties.load(BenchmarkSupport.class.getClassLoader().getResourceAsStream("example.properties"));
+		String server = properties.getProperty("glusterfs.server");
+		String volname = properties.getProperty("glusterfs.volume");
+		return FileSystems.newFileSystem(new URI("gluster://" + server + ":" + volname + "/"), env);
+	}
+
+	protected static Path scratchDirectory(FileSystem fileSystem, String name) throws IOException {
+		Path dir = fileSystem.getPath("/benchmark-" + name + "-" + System.currentTimeMillis());
+		Files.createDirectory(dir);
+		return dir;
+	}
+
+	/**
+	 * Runs the work warmup times untimed, then rounds times, and logs the best
+	 * and average wall clock time. Returns the best time in nanoseconds.
+	 */
+	protected static long measure(String label, int warmup, int rounds, Work work) throws IOException {
+		for (int i = 0; i < warmup; i++) {
+			work.run();
+		}
+		long best = Long.MAX_VALUE;
+		long total = 0;
+		for (int i = 0; i < rounds; i++) {
+			long start = System.nanoTime();
+			work.run();
+			long elapsed = System.nanoTime() - start;
+			best = Math.min(best, elapsed);
+			total += elapsed;
+		}
+		logger.info(String.format("%-40s best %8d ms, average %8d ms", label, TimeUnit.NANOSECONDS.toMillis(best),
+				TimeUnit.NANOSECONDS.toMillis(total / rounds)));
+		return best;
+	}
+}
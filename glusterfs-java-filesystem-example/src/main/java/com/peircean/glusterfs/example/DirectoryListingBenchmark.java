@@ -0,0 +1,61 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+/**
+ * Times listing a directory of many empty files, by name only and with the
+ * attributes of every entry. The entry count is the first argument.
+ */
+public class DirectoryListingBenchmark extends BenchmarkSupport {
+	private static final Logger logger = Logger.getLogger(DirectoryListingBenchmark.class.getName());
+	private static final int DEFAULT_ENTRIES = 100000;
+
+	public static void main(String[] args) throws IOException, URISyntaxException {
+		int entries = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ENTRIES;
+		FileSystem fileSystem = openFileSystem(null);
+		final Path dir = scratchDirectory(fileSystem, "listing");
+		for (int i = 0; i < entries; i++) {
+			Files.createFile(dir.resolve("entry-" + i));
+		}
+
+		measure("list " + entries + " names", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				count(dir, false);
+			}
+		});
+		measure("list " + entries + " names and attributes", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				count(dir, true);
+			}
+		});
+
+		FilesHelpers.deleteDirectoryRecursively(dir);
+		fileSystem.close();
+	}
+
+	private static void count(Path dir, boolean withAttributes) throws IOException {
+		int count = 0;
+		long bytes = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path entry : stream) {
+				count++;
+				if (withAttributes) {
+					bytes += Files.size(entry);
+					if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						count--;
+					}
+				}
+			}
+		}
+		logger.fine(count + " entries, " + bytes + " bytes");
+	}
+}
@@ -0,0 +1,51 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.peircean.glusterfs.GlusterFileSystemProvider;
+
+/**
+ * Compares deleting a synthetic tree with walkFileTree and Files.delete to
+ * GlusterFileSystemProvider.deleteRecursively at a few parallelism levels.
+ * Every run deletes a freshly built tree. Arguments: depth, directories per
+ * level and files per directory.
+ */
+public class TreeDeleteBenchmark extends BenchmarkSupport {
+
+	public static void main(String[] args) throws IOException, URISyntaxException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int files = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		FileSystem fileSystem = openFileSystem(null);
+		final GlusterFileSystemProvider provider = (GlusterFileSystemProvider) fileSystem.provider();
+		Path base = scratchDirectory(fileSystem, "treedelete");
+
+		for (int round = 0; round < 3; round++) {
+			final Path walked = Files.createDirectory(base.resolve("walked-" + round));
+			TreeWalkBenchmark.build(walked, depth, width, files);
+			measure("walkFileTree and Files.delete", 0, 1, new Work() {
+				@Override
+				public void run() throws IOException {
+					FilesHelpers.deleteDirectoryRecursively(walked);
+				}
+			});
+			for (final int parallelism : new int[] { 1, 4, 16 }) {
+				final Path tree = Files.createDirectory(base.resolve("tree-" + parallelism + "-" + round));
+				TreeWalkBenchmark.build(tree, depth, width, files);
+				measure("deleteRecursively, parallelism " + parallelism, 0, 1, new Work() {
+					@Override
+					public void run() throws IOException {
+						provider.deleteRecursively(tree, parallelism, null);
+					}
+				});
+			}
+		}
+
+		Files.delete(base);
+		fileSystem.close();
+	}
+}
@@ -0,0 +1,74 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import com.peircean.glusterfs.GlusterTreeWalker;
+
+/**
+ * Compares Files.walkFileTree with GlusterTreeWalker at a few parallelism
+ * levels over a synthetic tree. Arguments: depth, directories per level and
+ * files per directory.
+ */
+public class TreeWalkBenchmark extends BenchmarkSupport {
+
+	public static void main(String[] args) throws IOException, URISyntaxException {
+		int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int width = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int files = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+		FileSystem fileSystem = openFileSystem(null);
+		final Path dir = scratchDirectory(fileSystem, "treewalk");
+		build(dir, depth, width, files);
+
+		measure("Files.walkFileTree", 1, 3, new Work() {
+			@Override
+			public void run() throws IOException {
+				Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attributes) {
+						return FileVisitResult.CONTINUE;
+					}
+
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		});
+		for (final int parallelism : new int[] { 1, 4, 16 }) {
+			measure("GlusterTreeWalker, parallelism " + parallelism, 1, 3, new Work() {
+				@Override
+				public void run() throws IOException {
+					new GlusterTreeWalker(parallelism).walk(dir, new GlusterTreeWalker.Visitor() {
+						@Override
+						public void visit(Path path, BasicFileAttributes attributes) {
+						}
+					});
+				}
+			});
+		}
+
+		FilesHelpers.deleteDirectoryRecursively(dir);
+		fileSystem.close();
+	}
+
+	static void build(Path dir, int depth, int width, int files) throws IOException {
+		for (int i = 0; i < files; i++) {
+			Files.createFile(dir.resolve("file-" + i));
+		}
+		if (depth == 0) {
+			return;
+		}
+		for (int i = 0; i < width; i++) {
+			Path sub = Files.createDirectory(dir.resolve("dir-" + i));
+			build(sub, depth - 1, width, files);
+		}
+	}
+}
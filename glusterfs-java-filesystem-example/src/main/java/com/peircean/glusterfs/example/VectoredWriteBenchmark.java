@@ -0,0 +1,97 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Compares writing and reading header/payload/trailer records with one
+ * vectored call per record against one call per buffer.
+ */
+public class VectoredWriteBenchmark extends BenchmarkSupport {
+	private static final int RECORDS = 20000;
+	private static final int HEADER = 16;
+	private static final int PAYLOAD = 512;
+	private static final int TRAILER = 8;
+
+	private final ByteBuffer[] record = new ByteBuffer[] { ByteBuffer.allocate(HEADER),
+			ByteBuffer.allocate(PAYLOAD), ByteBuffer.allocate(TRAILER) };
+
+	public static void main(String[] args) throws IOException, URISyntaxException {
+		FileSystem fileSystem = openFileSystem(null);
+		Path dir = scratchDirectory(fileSystem, "vectored");
+		final Path perBuffer = dir.resolve("per-buffer.dat");
+		final Path vectored = dir.resolve("vectored.dat");
+		final VectoredWriteBenchmark benchmark = new VectoredWriteBenchmark();
+
+		measure("write, one call per buffer", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				benchmark.write(perBuffer, false);
+			}
+		});
+		measure("write, one vectored call per record", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				benchmark.write(vectored, true);
+			}
+		});
+		measure("read, one call per buffer", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				benchmark.read(perBuffer, false);
+			}
+		});
+		measure("read, one vectored call per record", 1, 5, new Work() {
+			@Override
+			public void run() throws IOException {
+				benchmark.read(vectored, true);
+			}
+		});
+
+		FilesHelpers.deleteDirectoryRecursively(dir);
+		fileSystem.close();
+	}
+
+	private void write(Path file, boolean vectored) throws IOException {
+		Arrays.fill(record[1].array(), (byte) 'x');
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (int i = 0; i < RECORDS; i++) {
+				record[0].clear();
+				record[0].putInt(i).clear();
+				record[1].clear();
+				record[2].clear();
+				if (vectored) {
+					channel.write(record);
+				} else {
+					for (ByteBuffer buffer : record) {
+						channel.write(buffer);
+					}
+				}
+			}
+		}
+	}
+
+	private void read(Path file, boolean vectored) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			for (int i = 0; i < RECORDS; i++) {
+				for (ByteBuffer buffer : record) {
+					buffer.clear();
+				}
+				if (vectored) {
+					channel.read(record);
+				} else {
+					for (ByteBuffer buffer : record) {
+						channel.read(buffer);
+					}
+				}
+			}
+		}
+	}
+}
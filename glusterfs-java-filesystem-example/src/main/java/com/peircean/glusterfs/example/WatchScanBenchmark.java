@@ -0,0 +1,81 @@
+package com.peircean.glusterfs.example;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+
+import com.peircean.glusterfs.GlusterWatchKey;
+import com.peircean.glusterfs.GlusterWatchService;
+
+/**
+ * Times one scan of a watched directory of many files, as the watch
+ * scheduler runs it: unchanged, while watching modifications and while
+ * watching creates and deletes only, and with one file added. The file count
+ * is the first argument.
+ */
+public class WatchScanBenchmark extends BenchmarkSupport {
+	private static final int DEFAULT_FILES = 50000;
+	private static final long NEVER = 24L * GlusterWatchService.MILLIS_PER_HOUR;
+
+	public static void main(String[] args) throws IOException, URISyntaxException {
+		int files = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILES;
+		FileSystem fileSystem = openFileSystem(null);
+		final Path dir = scratchDirectory(fileSystem, "watchscan");
+		for (int i = 0; i < files; i++) {
+			Files.createFile(dir.resolve("file-" + i));
+		}
+		/* the scheduler is kept out of the way so only the timed scans list the directory */
+		GlusterWatchService watchService = new GlusterWatchService(null, NEVER, NEVER);
+
+		final GlusterWatchKey modifications = (GlusterWatchKey) dir.register(watchService,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		modifications.update();
+		measure("scan " + files + " files, unchanged", 1, 5, new Work() {
+			@Override
+			public void run() {
+				modifications.update();
+			}
+		});
+		measure("scan " + files + " files, one added", 0, 5, new Work() {
+			private int added;
+
+			@Override
+			public void run() throws IOException {
+				Files.createFile(dir.resolve("added-" + added++));
+				modifications.update();
+			}
+		});
+		modifications.cancel();
+
+		GlusterWatchService entriesService = new GlusterWatchService(null, NEVER, NEVER);
+		final GlusterWatchKey entries = (GlusterWatchKey) dir.register(entriesService,
+				new WatchEvent.Kind<?>[] { StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE });
+		entries.update();
+		sleepPastMtimeTick();
+		entries.update();
+		measure("scan " + files + " files, creates and deletes only", 1, 5, new Work() {
+			@Override
+			public void run() {
+				entries.update();
+			}
+		});
+
+		watchService.close();
+		entriesService.close();
+		FilesHelpers.deleteDirectoryRecursively(dir);
+		fileSystem.close();
+	}
+
+	/* a directory changed in the current mtime second is always listed again */
+	private static void sleepPastMtimeTick() {
+		try {
+			Thread.sleep(2 * GlusterWatchService.MILLIS_PER_SECOND);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
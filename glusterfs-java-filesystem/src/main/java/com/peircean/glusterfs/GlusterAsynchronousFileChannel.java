@@ -0,0 +1,201 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileLock;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * {@link AsynchronousFileChannel} over a {@link GlusterFileChannel}. Each read
+ * or write is one positional glfs_pread or glfs_pwrite run on the channel's
+ * executor; completion handlers are invoked on that executor's thread.
+ * <p>
+ * libgfapi-jni has no binding for the glfs_*_async calls, so every request in
+ * flight occupies an executor thread for the duration of its RPC. Without an
+ * executor of their own, channels share a fixed pool sized from the number of
+ * processors, which bounds the threads but also the requests in flight.
+ * <p>
+ * Closing turns away new requests at once, but the file is closed only when
+ * the requests already in flight are done, on the thread of the last one.
+ */
+public class GlusterAsynchronousFileChannel extends AsynchronousFileChannel {
+	private static final Logger logger = Logger.getLogger(GlusterAsynchronousFileChannel.class.getName());
+	private static final ExecutorService defaultExecutor = GlusterThreads.newFixedDaemonPool("gluster-async",
+			Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+
+	private final GlusterFileChannel channel;
+	private final ExecutorService executor;
+	/* requests between guardOpen and done, and whether glfs_close has been left to the last of them */
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private volatile boolean closing;
+	private final AtomicBoolean closed = new AtomicBoolean();
+
+	GlusterAsynchronousFileChannel(GlusterFileChannel channel, ExecutorService executor) {
+		this.channel = channel;
+		this.executor = null == executor ? defaultExecutor : executor;
+		channel.disableReadAhead();
+	}
+
+	GlusterFileChannel getChannel() {
+		return channel;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public AsynchronousFileChannel truncate(long size) throws IOException {
+		throw new IOException("Unsuported operation exception");
+	}
+
+	@Override
+	public void force(boolean metaData) throws IOException {
+		channel.force(metaData);
+	}
+
+	@Override
+	public <A> void lock(long position, long size, boolean shared, A attachment,
+			CompletionHandler<FileLock, ? super A> handler) {
+		handler.failed(new IOException("Unsuported operation exception"), attachment);
+	}
+
+	@Override
+	public Future<FileLock> lock(long position, long size, boolean shared) {
+		return executor.submit(new Callable<FileLock>() {
+			@Override
+			public FileLock call() throws Exception {
+				throw new IOException("Unsuported operation exception");
+			}
+		});
+	}
+
+	@Override
+	public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+		throw new IOException("Unsuported operation exception");
+	}
+
+	@Override
+	public <A> void read(ByteBuffer dst, long position, A attachment,
+			CompletionHandler<Integer, ? super A> handler) {
+		complete(readTask(dst, position), attachment, handler);
+	}
+
+	@Override
+	public Future<Integer> read(ByteBuffer dst, long position) {
+		return executor.submit(readTask(dst, position));
+	}
+
+	@Override
+	public <A> void write(ByteBuffer src, long position, A attachment,
+			CompletionHandler<Integer, ? super A> handler) {
+		complete(writeTask(src, position), attachment, handler);
+	}
+
+	@Override
+	public Future<Integer> write(ByteBuffer src, long position) {
+		return executor.submit(writeTask(src, position));
+	}
+
+	@Override
+	public boolean isOpen() {
+		return !closing && !channel.isClosed();
+	}
+
+	@Override
+	public void close() throws IOException {
+		closing = true;
+		if (0 == inFlight.get()) {
+			closeChannel();
+		}
+	}
+
+	/* closes the file once, whichever of close and the last request in flight gets here first */
+	private void closeChannel() throws IOException {
+		if (closed.compareAndSet(false, true)) {
+			channel.close();
+		}
+	}
+
+	private Callable<Integer> readTask(final ByteBuffer dst, final long position) {
+		if (position < 0) {
+			throw new IllegalArgumentException("Negative position");
+		}
+		if (dst.isReadOnly()) {
+			throw new IllegalArgumentException("Read-only buffer");
+		}
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				guardOpen();
+				try {
+					return channel.read(dst, position);
+				} finally {
+					done();
+				}
+			}
+		};
+	}
+
+	private Callable<Integer> writeTask(final ByteBuffer src, final long position) {
+		if (position < 0) {
+			throw new IllegalArgumentException("Negative position");
+		}
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				guardOpen();
+				try {
+					return channel.write(src, position);
+				} finally {
+					done();
+				}
+			}
+		};
+	}
+
+	private <V, A> void complete(final Callable<V> task, final A attachment,
+			final CompletionHandler<V, ? super A> handler) {
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				V result;
+				try {
+					result = task.call();
+				} catch (Throwable t) {
+					handler.failed(t, attachment);
+					return;
+				}
+				handler.completed(result, attachment);
+			}
+		});
+	}
+
+	private void guardOpen() throws ClosedChannelException {
+		inFlight.incrementAndGet();
+		if (closing || channel.isClosed()) {
+			done();
+			throw new ClosedChannelException();
+		}
+	}
+
+	private void done() {
+		if (0 == inFlight.decrementAndGet() && closing) {
+			try {
+				closeChannel();
+			} catch (IOException e) {
+				logger.log(Level.WARNING, "Closing the file after the last request failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.FileSystem;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived cache of file attributes for one file system, keyed by path.
+ * Entries expire after a fixed time to live, the least recently used ones are
+ * evicted past the size bound, and our own mutations drop the entries they
+ * make stale. Changes made by other clients are only seen once an entry
+ * expires. A time to live of zero turns the cache off.
+ */
+public class GlusterAttributeCache {
+	public static final long DEFAULT_TTL_MILLIS = 0;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final long ttlNanos;
+	private final int maxEntries;
+	private final Map<Key, Entry> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public GlusterAttributeCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+	}
+
+	public GlusterAttributeCache(long ttlMillis, final int maxEntries) {
+		if (ttlMillis < 0 || maxEntries < 0) {
+			throw new IllegalArgumentException("Attribute cache settings can't be negative");
+		}
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * The cache of the file system, or null when it has none or has it turned
+	 * off.
+	 */
+	static GlusterAttributeCache of(FileSystem fileSystem) {
+		if (!(fileSystem instanceof GlusterFileSystem)) {
+			return null;
+		}
+		GlusterAttributeCache cache = ((GlusterFileSystem) fileSystem).getAttributeCache();
+		if (null == cache || !cache.isEnabled()) {
+			return null;
+		}
+		return cache;
+	}
+
+	public boolean isEnabled() {
+		return ttlNanos > 0 && maxEntries > 0;
+	}
+
+	public long getTtlMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public GlusterFileAttributes get(String path, boolean followLinks) {
+		if (!isEnabled()) {
+			return null;
+		}
+		Key key = new Key(path, followLinks);
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (null != entry) {
+				if (System.nanoTime() - entry.created < ttlNanos) {
+					hits.incrementAndGet();
+					return entry.attributes;
+				}
+				entries.remove(key);
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	public void put(String path, boolean followLinks, GlusterFileAttributes attributes) {
+		if (!isEnabled() || null == attributes) {
+			return;
+		}
+		Entry entry = new Entry(attributes, System.nanoTime());
+		synchronized (this) {
+			entries.put(new Key(path, followLinks), entry);
+		}
+	}
+
+	/**
+	 * Drops both the followed and the unfollowed entry of the path.
+	 */
+	public synchronized void invalidate(String path) {
+		entries.remove(new Key(path, true));
+		entries.remove(new Key(path, false));
+	}
+
+	/**
+	 * Drops the path and everything below it, for a directory that was
+	 * removed or renamed.
+	 */
+	public synchronized void invalidateTree(String path) {
+		invalidate(path);
+		String prefix = path.endsWith("/") ? path : path + "/";
+		Iterator<Key> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().path.startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	private static final class Key {
+		private final String path;
+		private final boolean followLinks;
+
+		Key(String path, boolean followLinks) {
+			this.path = path;
+			this.followLinks = followLinks;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + (followLinks ? 1231 : 1237);
+			result = prime * result + ((path == null) ? 0 : path.hashCode());
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null)
+				return false;
+			if (getClass() != obj.getClass())
+				return false;
+			Key other = (Key) obj;
+			if (followLinks != other.followLinks)
+				return false;
+			if (path == null) {
+				if (other.path != null)
+					return false;
+			} else if (!path.equals(other.path))
+				return false;
+			return true;
+		}
+	}
+
+	private static final class Entry {
+		private final GlusterFileAttributes attributes;
+		private final long created;
+
+		Entry(GlusterFileAttributes attributes, long created) {
+			this.attributes = attributes;
+			this.created = created;
+		}
+	}
+}
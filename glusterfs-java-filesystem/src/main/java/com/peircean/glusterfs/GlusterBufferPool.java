@@ -0,0 +1,226 @@
+package com.peircean.glusterfs;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of temporary I/O buffers shared by all threads. Buffers come in
+ * power of two size classes from 4 KB to 4 MB. Each thread keeps a small
+ * magazine per class in front of the shared free lists, so a thread that
+ * releases and acquires the same size again does not touch shared state.
+ * Idle buffers, in magazines and free lists together, never exceed the
+ * configured number of bytes; anything released beyond that is left to the
+ * garbage collector. Requests above the largest class are never pooled.
+ * <p>
+ * The threads that use the pool come and go with the cached executors, so the
+ * magazines of a thread that has ended are not lost with it: an acquire that
+ * finds a shared free list empty first moves their buffers to the shared
+ * lists.
+ * <p>
+ * Buffers are heap buffers: libgfapi-jni reads into and writes from byte
+ * arrays, so an off-heap buffer would cost an extra copy on every call.
+ * Buffers are not cleared when they come back; callers only ever hand out
+ * the bytes they put in.
+ */
+public class GlusterBufferPool {
+	public static final int MIN_CLASS_SIZE = 4 * 1024;
+	public static final int MAX_CLASS_SIZE = 4 * 1024 * 1024;
+	public static final long DEFAULT_MAX_IDLE_BYTES = 64L * 1024 * 1024;
+	static final int MAGAZINE_SIZE = 4;
+
+	private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE)
+			- Integer.numberOfTrailingZeros(MIN_CLASS_SIZE) + 1;
+
+	private static final GlusterBufferPool defaultPool = new GlusterBufferPool(DEFAULT_MAX_IDLE_BYTES);
+
+	private final long maxIdleBytes;
+	private final AtomicLong idleBytes = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong outstanding = new AtomicLong();
+	private final ConcurrentLinkedQueue<ByteBuffer>[] shared;
+	/* the magazines of every thread that used the pool, for those of ended threads to be emptied */
+	private final ConcurrentLinkedQueue<Owner> owners = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<Magazine[]> magazines = new ThreadLocal<Magazine[]>() {
+		@Override
+		protected Magazine[] initialValue() {
+			Magazine[] m = new Magazine[CLASSES];
+			for (int i = 0; i < CLASSES; i++) {
+				m[i] = new Magazine();
+			}
+			owners.add(new Owner(Thread.currentThread(), m));
+			return m;
+		}
+	};
+
+	private static class Magazine {
+		final ByteBuffer[] buffers = new ByteBuffer[MAGAZINE_SIZE];
+		int count;
+	}
+
+	private static class Owner {
+		final WeakReference<Thread> thread;
+		final Magazine[] magazines;
+
+		Owner(Thread thread, Magazine[] magazines) {
+			this.thread = new WeakReference<>(thread);
+			this.magazines = magazines;
+		}
+
+		boolean isEnded() {
+			Thread t = thread.get();
+			return null == t || !t.isAlive();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	public GlusterBufferPool(long maxIdleBytes) {
+		this.maxIdleBytes = maxIdleBytes;
+		shared = new ConcurrentLinkedQueue[CLASSES];
+		for (int i = 0; i < CLASSES; i++) {
+			shared[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	public static GlusterBufferPool getDefault() {
+		return defaultPool;
+	}
+
+	/**
+	 * Returns a buffer with position zero and limit size. Its capacity may be
+	 * larger and its content is whatever the previous user left in it.
+	 */
+	public ByteBuffer acquire(int size) {
+		outstanding.incrementAndGet();
+		int sizeClass = sizeClass(size);
+		if (sizeClass < 0) {
+			misses.incrementAndGet();
+			return ByteBuffer.allocate(size);
+		}
+		ByteBuffer buffer = null;
+		Magazine magazine = magazines.get()[sizeClass];
+		if (magazine.count > 0) {
+			buffer = magazine.buffers[--magazine.count];
+			magazine.buffers[magazine.count] = null;
+		} else {
+			buffer = shared[sizeClass].poll();
+			if (null == buffer && reclaimEndedThreads()) {
+				buffer = shared[sizeClass].poll();
+			}
+		}
+		if (null == buffer) {
+			misses.incrementAndGet();
+			buffer = ByteBuffer.allocate(classSize(sizeClass));
+		} else {
+			hits.incrementAndGet();
+			idleBytes.addAndGet(-buffer.capacity());
+		}
+		buffer.clear();
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Gives a buffer obtained from acquire back to the pool. The caller must
+	 * not use it afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (null == buffer) {
+			return;
+		}
+		outstanding.decrementAndGet();
+		int capacity = buffer.capacity();
+		int sizeClass = sizeClass(capacity);
+		if (sizeClass < 0 || classSize(sizeClass) != capacity || !buffer.hasArray()) {
+			return;
+		}
+		if (idleBytes.addAndGet(capacity) > maxIdleBytes) {
+			idleBytes.addAndGet(-capacity);
+			return;
+		}
+		Magazine magazine = magazines.get()[sizeClass];
+		if (magazine.count < MAGAZINE_SIZE) {
+			magazine.buffers[magazine.count++] = buffer;
+		} else {
+			shared[sizeClass].offer(buffer);
+		}
+	}
+
+	/*
+	 * Moves the buffers left in the magazines of ended threads to the shared
+	 * lists; they stay counted as idle. Seeing a thread ended makes all it did
+	 * visible here, and removing its owner first keeps two threads from
+	 * emptying the same magazines.
+	 */
+	boolean reclaimEndedThreads() {
+		boolean reclaimed = false;
+		Iterator<Owner> iterator = owners.iterator();
+		while (iterator.hasNext()) {
+			Owner owner = iterator.next();
+			if (owner.isEnded() && owners.remove(owner)) {
+				for (int i = 0; i < CLASSES; i++) {
+					Magazine magazine = owner.magazines[i];
+					while (magazine.count > 0) {
+						shared[i].offer(magazine.buffers[--magazine.count]);
+						magazine.buffers[magazine.count] = null;
+						reclaimed = true;
+					}
+				}
+			}
+		}
+		return reclaimed;
+	}
+
+	public long getMaxIdleBytes() {
+		return maxIdleBytes;
+	}
+
+	/**
+	 * Bytes held by idle buffers, in magazines and shared free lists.
+	 */
+	public long getIdleBytes() {
+		return idleBytes.get();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return 0 == total ? 0.0 : (double) h / total;
+	}
+
+	/**
+	 * Buffers acquired and not yet released.
+	 */
+	public long getOutstanding() {
+		return outstanding.get();
+	}
+
+	static int sizeClass(int size) {
+		if (size > MAX_CLASS_SIZE) {
+			return -1;
+		}
+		int rounded = size <= MIN_CLASS_SIZE ? MIN_CLASS_SIZE : Integer.highestOneBit(size - 1) << 1;
+		return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_CLASS_SIZE);
+	}
+
+	static int classSize(int sizeClass) {
+		return MIN_CLASS_SIZE << sizeClass;
+	}
+
+	@Override
+	public String toString() {
+		return "GlusterBufferPool [idleBytes=" + idleBytes + ", maxIdleBytes=" + maxIdleBytes + ", hits=" + hits
+				+ ", misses=" + misses + ", outstanding=" + outstanding + "]";
+	}
+}
@@ -0,0 +1,17 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.OpenOption;
+
+/**
+ * Gluster specific options for opening a {@link GlusterFileChannel}.
+ */
+public enum GlusterChannelOption implements OpenOption {
+	/**
+	 * Buffer writes and flush them to the volume in the background. Adjacent
+	 * writes are coalesced into large buffers. A failed background flush is
+	 * reported by the next write, {@code force()} or {@code close()}.
+	 * {@code force()} and every read on the channel wait for the buffered
+	 * data to reach the volume first.
+	 */
+	WRITE_BEHIND
+}
@@ -0,0 +1,78 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.CopyOption;
+
+/**
+ * Tunes how {@link GlusterFileSystemProvider#copy} moves file content. The file
+ * is split into ranges of {@code rangeSize} bytes and {@code parallelism}
+ * workers copy ranges concurrently with positional reads and writes, so the
+ * memory in flight is bounded by parallelism times the chunk size.
+ * <p>
+ * {@code Files.copy} only reaches this provider when both paths are Gluster
+ * paths. To copy from Gluster to another filesystem with this engine, call
+ * {@code provider().copy(source, target, options)} on the source path's
+ * provider directly.
+ */
+public final class GlusterCopyOption implements CopyOption {
+	public static final int DEFAULT_RANGE_SIZE = 16 * 1024 * 1024;
+
+	private final int parallelism;
+	private final int rangeSize;
+
+	private GlusterCopyOption(int parallelism, int rangeSize) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (rangeSize < 1) {
+			throw new IllegalArgumentException("rangeSize must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.rangeSize = rangeSize;
+	}
+
+	public static GlusterCopyOption parallelism(int parallelism) {
+		return new GlusterCopyOption(parallelism, DEFAULT_RANGE_SIZE);
+	}
+
+	public static GlusterCopyOption parallelism(int parallelism, int rangeSize) {
+		return new GlusterCopyOption(parallelism, rangeSize);
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getRangeSize() {
+		return rangeSize;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + parallelism;
+		result = prime * result + rangeSize;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		GlusterCopyOption other = (GlusterCopyOption) obj;
+		if (parallelism != other.parallelism)
+			return false;
+		if (rangeSize != other.rangeSize)
+			return false;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "GlusterCopyOption [parallelism=" + parallelism + ", rangeSize=" + rangeSize + "]";
+	}
+}
@@ -1,6 +1,7 @@
 package com.peircean.glusterfs;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -40,19 +41,57 @@ class GlusterDirectoryIterator<T> implements Iterator<GlusterPath> {
 	}
 
 	void advance() {
-		String name;
-		do {
+		/*
+		 * The dirent and native result slot are reused for every entry of
+		 * the stream. The result slot receives the entry pointer readdir hands
+		 * back, which is null, read here as a zero d_ino, at the end of the
+		 * directory. Names are decoded straight from d_name, "." and ".." are
+		 * skipped before any String is made, and child paths are built from
+		 * the parent's parts without parsing.
+		 */
+		if (null == current) {
 			current = new dirent();
-			long nextPtr = dirent.malloc(dirent.SIZE_OF);
-			GLFS.glfs_readdir_r(stream.getDirHandle(), current, nextPtr);
-
+		}
+		if (null == next) {
 			next = new dirent();
-			dirent.memmove(next, nextPtr, dirent.SIZE_OF);
-			dirent.free(nextPtr);
+		}
+		long result = stream.getDirentBuffer();
+		int length;
+		do {
+			GLFS.glfs_readdir_r(stream.getDirHandle(), current, result);
+			dirent.memmove(next, result, dirent.SIZE_OF);
+			if (0 == next.d_ino) {
+				nextPath = null;
+				return;
+			}
+			length = nameLength(current.d_name);
+		} while (isSelfOrParent(current.d_name, length));
+
+		nextPath = stream.getDir().child(new String(current.d_name, 0, length, StandardCharsets.UTF_8));
+		attachType();
+	}
 
-			name = current.getName();
-			nextPath = (GlusterPath) stream.getDir().resolve(name);
-		} while (name.equals(".") || name.equals(".."));
+	private static int nameLength(byte[] name) {
+		int length = 0;
+		while (length < name.length && 0 != name[length]) {
+			length++;
+		}
+		return length;
+	}
+
+	private static boolean isSelfOrParent(byte[] name, int length) {
+		return (1 == length && '.' == name[0]) || (2 == length && '.' == name[0] && '.' == name[1]);
+	}
+
+	private void attachType() {
+		int type = current.d_type & 0xff;
+		if (GlusterListedType.DT_UNKNOWN == type) {
+			return;
+		}
+		GlusterFileSystem fileSystem = nextPath.getFileSystem();
+		if (null != fileSystem) {
+			fileSystem.listed(nextPath, type);
+		}
 	}
 
 	@Override
@@ -0,0 +1,71 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the entries of one {@link GlusterDirectoryStream}. Entries
+ * are fetched with {@link GlusterDirectoryStream#listBatch(int)}; a split
+ * hands over the next batch, growing batch by batch like the JDK's iterator
+ * spliterator does, so a parallel stream works on listed entries while the
+ * rest of the directory is still being read.
+ */
+final class GlusterDirectorySpliterator implements Spliterator<Path> {
+	static final int READ_BATCH = 256;
+	static final int INITIAL_SPLIT = 64;
+	static final int MAX_SPLIT = 1 << 16;
+
+	private final GlusterDirectoryStream stream;
+	private List<Path> buffer;
+	private int index;
+	private int splitSize = INITIAL_SPLIT;
+	private boolean exhausted;
+
+	GlusterDirectorySpliterator(GlusterDirectoryStream stream) {
+		this.stream = stream;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Path> action) {
+		if (null == buffer || index == buffer.size()) {
+			if (exhausted) {
+				return false;
+			}
+			buffer = stream.listBatch(READ_BATCH);
+			index = 0;
+			if (buffer.isEmpty()) {
+				exhausted = true;
+				return false;
+			}
+		}
+		action.accept(buffer.get(index++));
+		return true;
+	}
+
+	@Override
+	public Spliterator<Path> trySplit() {
+		if (exhausted) {
+			return null;
+		}
+		List<Path> batch = stream.listBatch(splitSize);
+		if (batch.isEmpty()) {
+			exhausted = true;
+			return null;
+		}
+		splitSize = Math.min(splitSize * 2, MAX_SPLIT);
+		return Spliterators.spliterator(batch.toArray(), characteristics());
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return DISTINCT | NONNULL;
+	}
+}
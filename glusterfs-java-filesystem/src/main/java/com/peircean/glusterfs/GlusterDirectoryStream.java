@@ -3,14 +3,21 @@ package com.peircean.glusterfs;
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
 
 import com.peircean.libgfapi_jni.internal.GLFS;
+import com.peircean.libgfapi_jni.internal.structs.dirent;
 
 public class GlusterDirectoryStream implements DirectoryStream<Path> {
 	private GlusterFileSystem fileSystem;
 	private long dirHandle = 0;
+	/* native result slot shared by every readdir call of this stream */
+	private long direntBuffer = 0;
 	private GlusterDirectoryIterator iterator;
+	private boolean batched = false;
 	private boolean closed = false;
 	private GlusterPath dir;
 	private DirectoryStream.Filter<? super Path> filter;
@@ -27,10 +34,54 @@ public class GlusterDirectoryStream implements DirectoryStream<Path> {
 		return iterator;
 	}
 
+	/**
+	 * Returns up to max further entries of the directory, or an empty list
+	 * once it is exhausted, so a caller paging through a listing gets a page
+	 * per call. The filter applies as for the iterator. A stream is read
+	 * either in batches or through its iterator, not both.
+	 */
+	public List<Path> listBatch(int max) {
+		if (max < 1) {
+			throw new IllegalArgumentException("Batch size must be positive: " + max);
+		}
+		if (closed) {
+			throw new IllegalStateException("Stream is closed");
+		}
+		if (!batched) {
+			if (null != iterator) {
+				throw new IllegalStateException("Already iterating!");
+			}
+			GlusterDirectoryIterator iterator = new GlusterDirectoryIterator();
+			iterator.setStream(this);
+			iterator.setFilter(filter);
+			this.iterator = iterator;
+			batched = true;
+		}
+		List<Path> batch = new ArrayList<>(Math.min(max, 1024));
+		while (batch.size() < max && iterator.hasNext()) {
+			batch.add(iterator.next());
+		}
+		return batch;
+	}
+
+	/**
+	 * Spliterator over the remaining entries, reading them in batches so that
+	 * a parallel stream can hand listed entries to other threads. It reads
+	 * the stream like {@link #listBatch(int)} does.
+	 */
+	@Override
+	public Spliterator<Path> spliterator() {
+		return new GlusterDirectorySpliterator(this);
+	}
+
 	@Override
 	public void close() throws IOException {
 		if (!closed) {
 			GLFS.glfs_close(dirHandle);
+			if (0 != direntBuffer) {
+				dirent.free(direntBuffer);
+				direntBuffer = 0;
+			}
 			closed = true;
 		}
 	}
@@ -44,6 +95,13 @@ public class GlusterDirectoryStream implements DirectoryStream<Path> {
 		}
 	}
 
+	long getDirentBuffer() {
+		if (0 == direntBuffer) {
+			direntBuffer = dirent.malloc(dirent.SIZE_OF);
+		}
+		return direntBuffer;
+	}
+
 	public GlusterFileSystem getFileSystem() {
 		return fileSystem;
 	}
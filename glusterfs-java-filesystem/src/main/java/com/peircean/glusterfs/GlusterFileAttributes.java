@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import com.peircean.libgfapi_jni.internal.structs.stat;
 
@@ -33,23 +34,33 @@ public class GlusterFileAttributes implements PosixFileAttributes {
 
 	private final int mode, uid, gid;
 	private final long size, atime, ctime, mtime, inode;
+	/* the nanoseconds past the second of each time, as stat reports them */
+	private final long atimeNsec, ctimeNsec, mtimeNsec;
 
 	public GlusterFileAttributes(int mode, int uid, int gid, long size, long atime, long ctime, long mtime,
 			long inode) {
+		this(mode, uid, gid, size, atime, 0, ctime, 0, mtime, 0, inode);
+	}
+
+	public GlusterFileAttributes(int mode, int uid, int gid, long size, long atime, long atimeNsec, long ctime,
+			long ctimeNsec, long mtime, long mtimeNsec, long inode) {
 		super();
 		this.mode = mode;
 		this.uid = uid;
 		this.gid = gid;
 		this.size = size;
 		this.atime = atime;
+		this.atimeNsec = atimeNsec;
 		this.ctime = ctime;
+		this.ctimeNsec = ctimeNsec;
 		this.mtime = mtime;
+		this.mtimeNsec = mtimeNsec;
 		this.inode = inode;
 	}
 
 	public static GlusterFileAttributes fromStat(stat stat) {
-		return new GlusterFileAttributes(stat.st_mode, stat.st_uid, stat.st_gid, stat.st_size, stat.atime, stat.ctime,
-				stat.mtime, stat.st_ino);
+		return new GlusterFileAttributes(stat.st_mode, stat.st_uid, stat.st_gid, stat.st_size, stat.atime,
+				stat.atime_nsec, stat.ctime, stat.ctime_nsec, stat.mtime, stat.mtime_nsec, stat.st_ino);
 	}
 
 	public static int parseAttrs(FileAttribute<?>... attrs) {
@@ -126,17 +137,21 @@ public class GlusterFileAttributes implements PosixFileAttributes {
 
 	@Override
 	public FileTime lastModifiedTime() {
-		return FileTime.fromMillis(mtime * 1000);
+		return toFileTime(mtime, mtimeNsec);
 	}
 
 	@Override
 	public FileTime lastAccessTime() {
-		return FileTime.fromMillis(atime * 1000);
+		return toFileTime(atime, atimeNsec);
 	}
 
 	@Override
 	public FileTime creationTime() {
-		return FileTime.fromMillis(ctime * 1000);
+		return toFileTime(ctime, ctimeNsec);
+	}
+
+	private static FileTime toFileTime(long seconds, long nanoseconds) {
+		return FileTime.from(TimeUnit.SECONDS.toNanos(seconds) + nanoseconds, TimeUnit.NANOSECONDS);
 	}
 
 	@Override
@@ -208,14 +223,26 @@ public class GlusterFileAttributes implements PosixFileAttributes {
 		return atime;
 	}
 
+	public long getAtimeNsec() {
+		return atimeNsec;
+	}
+
 	public long getCtime() {
 		return ctime;
 	}
 
+	public long getCtimeNsec() {
+		return ctimeNsec;
+	}
+
 	public long getMtime() {
 		return mtime;
 	}
 
+	public long getMtimeNsec() {
+		return mtimeNsec;
+	}
+
 	public long getInode() {
 		return inode;
 	}
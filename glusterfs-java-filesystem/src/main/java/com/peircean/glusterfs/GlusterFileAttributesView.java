@@ -47,12 +47,11 @@ public class GlusterFileAttributesView {
 				throws IOException {
 			timespec[] times = new timespec[2];
 			times[0] = new timespec();
-			times[0].tv_sec = lastAccessTime.to(TimeUnit.SECONDS);
-			times[0].tv_nsec = lastAccessTime.to(TimeUnit.NANOSECONDS);
+			setTimespec(times[0], lastAccessTime);
 			times[1] = new timespec();
-			times[1].tv_sec = lastModifiedTime.to(TimeUnit.SECONDS);
-			times[1].tv_nsec = lastModifiedTime.to(TimeUnit.NANOSECONDS);
+			setTimespec(times[1], lastModifiedTime);
 			GLFS.glfs_utimens(file.getFileSystem().getVolptr(), file.toAbsolutePath().toString(), times);
+			forgetAttributes();
 
 		}
 
@@ -60,6 +59,18 @@ public class GlusterFileAttributesView {
 		public void setPermissions(Set<PosixFilePermission> perms) throws IOException {
 			int mode = GlusterFileAttributes.permsToMode(perms);
 			GLFS.glfs_chmod(file.getFileSystem().getVolptr(), file.getString(), mode);
+			forgetAttributes();
+		}
+
+		private void forgetAttributes() {
+			file.getFileSystem().attributesChanged(file.toAbsolutePath());
+		}
+
+		/* utimens takes the nanoseconds past the second, not the whole time in nanoseconds */
+		private static void setTimespec(timespec time, FileTime fileTime) {
+			long nanoseconds = fileTime.to(TimeUnit.NANOSECONDS);
+			time.tv_sec = Math.floorDiv(nanoseconds, TimeUnit.SECONDS.toNanos(1));
+			time.tv_nsec = Math.floorMod(nanoseconds, TimeUnit.SECONDS.toNanos(1));
 		}
 
 		@Override
@@ -108,12 +119,12 @@ public class GlusterFileAttributesView {
 
 				@Override
 				public FileTime lastModifiedTime() {
-					return FileTime.from(readAttributes.getMtime(), TimeUnit.SECONDS);
+					return readAttributes.lastModifiedTime();
 				}
 
 				@Override
 				public FileTime lastAccessTime() {
-					return FileTime.from(readAttributes.getAtime(), TimeUnit.SECONDS);
+					return readAttributes.lastAccessTime();
 				}
 
 				@Override
@@ -143,7 +154,7 @@ public class GlusterFileAttributesView {
 
 				@Override
 				public FileTime creationTime() {
-					return FileTime.from(readAttributes.getCtime(), TimeUnit.SECONDS);
+					return readAttributes.creationTime();
 				}
 			};
 			return retval1;
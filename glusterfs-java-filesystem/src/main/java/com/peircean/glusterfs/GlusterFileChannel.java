@@ -39,8 +39,7 @@ public class GlusterFileChannel extends FileChannel {
 
 	public static final Map<StandardOpenOption, Integer> optionMap = new HashMap<>();
 	public static final Map<PosixFilePermission, Integer> perms = new HashMap<>();
-	private static final int TRANSFER_SIZE = 8192;
-	private static final int TRANSFER_SIZE_GLUSTER = 8192;
+	private static final int MAX_STAGING_SIZE = 1024 * 1024;
 
 	static {
 		optionMap.put(StandardOpenOption.APPEND, GlusterOpenOption.O_APPEND);
@@ -102,6 +101,11 @@ public class GlusterFileChannel extends FileChannel {
 
 	private boolean closed = false;
 	private boolean writable;
+	private GlusterTransferSizer localTransferSizer;
+	private GlusterReadAhead readAhead;
+	private GlusterWriteBehind writeBehind;
+	/* set when reads were served without moving the file descriptor's offset */
+	private boolean fileOffsetStale;
 
 	public GlusterFileChannel() {
 		super();
@@ -145,11 +149,24 @@ public class GlusterFileChannel extends FileChannel {
 			throw new IOException(
 					"Unable to create or open file '" + pathString + "' on volume '" + fileSystem.toString() + "'");
 		}
+		if (options.contains(StandardOpenOption.CREATE) || createNew
+				|| options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+			fileSystem.pathChanged(path, false);
+		}
+		if (options.contains(StandardOpenOption.READ)) {
+			readAhead = GlusterReadAhead.create(this, fileSystem.getReadAheadPolicy());
+		}
+		if (options.contains(GlusterChannelOption.WRITE_BEHIND)) {
+			writeBehind = new GlusterWriteBehind(this, fileSystem.getWriteBehindBufferSize());
+		}
 	}
 
 	int parseOptions(Set<? extends OpenOption> options) {
 		int opt = 0;
 		for (OpenOption o : options) {
+			if (o instanceof GlusterChannelOption) {
+				continue;
+			}
 			if (!optionMap.containsKey(o)) {
 				throw new UnsupportedOperationException("Option " + o + " is not supported at this time");
 			}
@@ -161,13 +178,17 @@ public class GlusterFileChannel extends FileChannel {
 	@Override
 	public int read(ByteBuffer byteBuffer) throws IOException {
 		guardClosed();
-		byte[] bytes = byteBuffer.array();
-		long read = GLFS.glfs_read(fileptr, bytes, bytes.length, 0);
-		if (read < 0) {
-			throw new IOException(UtilJNI.strerror());
+		if (0 == byteBuffer.remaining()) {
+			return 0;
+		}
+		long read;
+		if (null != readAhead) {
+			read = readAhead.read(byteBuffer, position);
+			fileOffsetStale = true;
+		} else {
+			read = readInto(byteBuffer, -1);
 		}
 		position += read;
-		byteBuffer.position((int) read);
 		if (0 == read) {
 			/*
 			 * End of file , precum in glfs-util.c
@@ -201,24 +222,47 @@ public class GlusterFileChannel extends FileChannel {
 		return totalRead;
 	}
 
+	/*
+	 * Scatter read: one glfs_read fills a staging buffer sized to the combined
+	 * remaining space, which is then spread over the buffers in order. A single
+	 * buffer with space left is read into directly.
+	 */
 	long readHelper(ByteBuffer[] byteBuffers, int offset, int length) throws IOException {
+		drainWriteBehind();
+		long remaining = UtilBuffers.remaining(byteBuffers, offset, length);
+		if (0 == remaining) {
+			return 0L;
+		}
+		ByteBuffer single = UtilBuffers.singleWithRemaining(byteBuffers, offset, length);
+		if (null != single) {
+			long read = readInto(single, -1);
+			return 0 == read ? -1 : read;
+		}
+
 		long totalRead = 0L;
 		boolean endOfStream = false;
-		for (int i = offset; i < length + offset && !endOfStream; i++) {
-			byte[] bytes = byteBuffers[i].array();
-			int remaining;
-			while ((remaining = byteBuffers[i].remaining()) > 0) {
-				long read = GLFS.glfs_read(fileptr, bytes, remaining, 0);
+		syncFileOffset();
+		ByteBuffer staging = GlusterBufferPool.getDefault().acquire((int) Math.min(remaining, MAX_STAGING_SIZE));
+		try {
+			byte[] bytes = staging.array();
+			while (totalRead < remaining) {
+				int count = (int) Math.min(remaining - totalRead, staging.limit());
+				long read = GLFS.glfs_read(fileptr, bytes, count, 0);
 				if (read < 0) {
 					throw new IOException(UtilJNI.strerror());
 				}
-				totalRead += read;
-				byteBuffers[i].position((int) read);
 				if (0 == read) {
 					endOfStream = true;
 					break;
 				}
+				UtilBuffers.scatter(bytes, (int) read, byteBuffers, offset, length);
+				totalRead += read;
+				if (read < count) {
+					break;
+				}
 			}
+		} finally {
+			GlusterBufferPool.getDefault().release(staging);
 		}
 
 		if (endOfStream && totalRead == 0) {
@@ -231,18 +275,16 @@ public class GlusterFileChannel extends FileChannel {
 	@Override
 	public int write(ByteBuffer byteBuffer) throws IOException {
 		guardClosed();
-		if (byteBuffer.hasArray()) {
-			byte[] buf = byteBuffer.array();
-			int written = GLFS.glfs_write(fileptr, buf, byteBuffer.remaining(), 0);
-			if (written < 0) {
-				throw new IOException(UtilJNI.strerror());
-			}
-			position += written;
-			byteBuffer.position(written);
-			return written;
+		int written;
+		if (null != writeBehind) {
+			contentChanged();
+			written = writeBehind.write(byteBuffer, position);
+			fileOffsetStale = true;
 		} else {
-			throw new IOException(UtilJNI.strerror());
+			written = writeFrom(byteBuffer, -1);
 		}
+		position += written;
+		return written;
 	}
 
 	@Override
@@ -259,20 +301,58 @@ public class GlusterFileChannel extends FileChannel {
 		}
 
 		long totalWritten = 0L;
+		try {
+			totalWritten = writeHelper(byteBuffers, offset, length);
+		} finally {
+			position += totalWritten;
+		}
+		return totalWritten;
+	}
+
+	/*
+	 * Gather write: the buffers are copied back to back into one staging buffer
+	 * and sent with a single glfs_write. A single buffer with bytes left is
+	 * written directly.
+	 */
+	long writeHelper(ByteBuffer[] byteBuffers, int offset, int length) throws IOException {
+		long remaining = UtilBuffers.remaining(byteBuffers, offset, length);
+		if (0 == remaining) {
+			return 0L;
+		}
+		if (null != writeBehind) {
+			contentChanged();
+			long totalWritten = 0L;
+			for (int i = offset; i < offset + length; i++) {
+				totalWritten += writeBehind.write(byteBuffers[i], position + totalWritten);
+			}
+			fileOffsetStale = true;
+			return totalWritten;
+		}
+		ByteBuffer single = UtilBuffers.singleWithRemaining(byteBuffers, offset, length);
+		if (null != single) {
+			return writeFrom(single, -1);
+		}
 
-		for (int i = offset; i < length + offset; i++) {
-			int remaining = byteBuffers[i].remaining();
-			while (remaining > 0) {
-				byte[] bytes = byteBuffers[i].array();
-				int written = GLFS.glfs_write(fileptr, bytes, remaining, 0);
+		long totalWritten = 0L;
+		contentChanged();
+		syncFileOffset();
+		ByteBuffer staging = GlusterBufferPool.getDefault().acquire((int) Math.min(remaining, MAX_STAGING_SIZE));
+		try {
+			byte[] bytes = staging.array();
+			while (totalWritten < remaining) {
+				int count = UtilBuffers.gather(byteBuffers, offset, length, bytes, staging.limit());
+				int written = GLFS.glfs_write(fileptr, bytes, count, 0);
 				if (written < 0) {
-					throw new IOException();
+					throw new IOException(UtilJNI.strerror());
 				}
-				position += written;
-				byteBuffers[i].position(written);
+				UtilBuffers.skip(byteBuffers, offset, length, written);
 				totalWritten += written;
-				remaining = byteBuffers[i].remaining();
+				if (written < count) {
+					break;
+				}
 			}
+		} finally {
+			GlusterBufferPool.getDefault().release(staging);
 		}
 		return totalWritten;
 	}
@@ -292,6 +372,7 @@ public class GlusterFileChannel extends FileChannel {
 		int whence = 0; // SEEK_SET
 		int seek = GLFS.glfs_lseek(fileptr, offset, whence);
 		position = offset;
+		fileOffsetStale = false;
 		return this;
 	}
 
@@ -303,6 +384,7 @@ public class GlusterFileChannel extends FileChannel {
 
 	@Override
 	public long size() throws IOException {
+		drainWriteBehind();
 		stat stat = new stat();
 		int retval = GLFS.glfs_fstat(fileptr, stat);
 		if (0 != retval) {
@@ -320,6 +402,7 @@ public class GlusterFileChannel extends FileChannel {
 	@Override
 	public void force(boolean b) throws IOException {
 		guardClosed();
+		drainWriteBehind();
 		int fsync = GLFS.glfs_fsync(fileptr);
 		if (0 != fsync) {
 			throw new IOException("Unable to fsync");
@@ -346,14 +429,16 @@ public class GlusterFileChannel extends FileChannel {
 	}
 
 	private long transferToArbitraryChannel(long position, int icount, WritableByteChannel target) throws IOException {
-		int c = Math.min(icount, TRANSFER_SIZE);
-		ByteBuffer bb = UtilBuffers.getTemporaryDirectBuffer(c);
+		GlusterTransferSizer sizer = getTransferSizer();
+		ByteBuffer bb = GlusterBufferPool.getDefault().acquire(Math.min(icount, sizer.getChunkSize()));
 		long tw = 0; // Total bytes written
 		long pos = position;
 		try {
-			UtilBuffers.erase(bb);
 			while (tw < icount) {
-				bb.limit(Math.min((int) (icount - tw), TRANSFER_SIZE));
+				int chunk = sizer.getChunkSize();
+				bb = ensureCapacity(bb, Math.min((int) (icount - tw), chunk));
+				bb.limit(Math.min((int) (icount - tw), chunk));
+				long start = System.nanoTime();
 				int nr = read(bb, pos);
 				if (nr <= 0)
 					break;
@@ -361,6 +446,7 @@ public class GlusterFileChannel extends FileChannel {
 				// ## Bug: Will block writing target if this channel
 				// ## is asynchronously closed
 				int nw = target.write(bb);
+				sizer.record(chunk, nw, System.nanoTime() - start);
 				tw += nw;
 				if (nw != nr)
 					break;
@@ -373,7 +459,7 @@ public class GlusterFileChannel extends FileChannel {
 				return tw;
 			throw x;
 		} finally {
-			UtilBuffers.releaseTemporaryDirectBuffer(bb);
+			GlusterBufferPool.getDefault().release(bb);
 		}
 	}
 
@@ -394,15 +480,16 @@ public class GlusterFileChannel extends FileChannel {
 	}
 
 	private long transferFromFileChannel(GlusterFileChannel src, long position2, long count) throws IOException {
-		// Untrusted target: Use a newly-erased buffer
-		int c = (int) Math.min(count, TRANSFER_SIZE_GLUSTER);
-		ByteBuffer bb = UtilBuffers.getTemporaryDirectBuffer(c);
+		GlusterTransferSizer sizer = getTransferSizer();
+		ByteBuffer bb = GlusterBufferPool.getDefault().acquire((int) Math.min(count, sizer.getChunkSize()));
 		long tw = 0; // Total bytes written
 		long pos = position;
 		try {
-			UtilBuffers.erase(bb);
 			while (tw < count) {
-				bb.limit((int) Math.min((count - tw), TRANSFER_SIZE_GLUSTER));
+				int chunk = sizer.getChunkSize();
+				bb = ensureCapacity(bb, (int) Math.min((count - tw), chunk));
+				bb.limit((int) Math.min((count - tw), chunk));
+				long start = System.nanoTime();
 				// ## Bug: Will block reading src if this channel
 				// ## is asynchronously closed
 				int nr = src.read(bb);
@@ -410,6 +497,7 @@ public class GlusterFileChannel extends FileChannel {
 					break;
 				bb.flip();
 				int nw = write(bb, pos);
+				sizer.record(chunk, nw, System.nanoTime() - start);
 				tw += nw;
 				if (nw != nr)
 					break;
@@ -425,20 +513,21 @@ public class GlusterFileChannel extends FileChannel {
 				return tw;
 			throw x;
 		} finally {
-			UtilBuffers.releaseTemporaryDirectBuffer(bb);
+			GlusterBufferPool.getDefault().release(bb);
 		}
 	}
 
 	private long transferFromArbitraryChannel(ReadableByteChannel src, long position, long count) throws IOException {
-		// Untrusted target: Use a newly-erased buffer
-		int c = (int) Math.min(count, TRANSFER_SIZE);
-		ByteBuffer bb = UtilBuffers.getTemporaryDirectBuffer(c);
+		GlusterTransferSizer sizer = getTransferSizer();
+		ByteBuffer bb = GlusterBufferPool.getDefault().acquire((int) Math.min(count, sizer.getChunkSize()));
 		long tw = 0; // Total bytes written
 		long pos = position;
 		try {
-			UtilBuffers.erase(bb);
 			while (tw < count) {
-				bb.limit((int) Math.min((count - tw), TRANSFER_SIZE));
+				int chunk = sizer.getChunkSize();
+				bb = ensureCapacity(bb, (int) Math.min((count - tw), chunk));
+				bb.limit((int) Math.min((count - tw), chunk));
+				long start = System.nanoTime();
 				// ## Bug: Will block reading src if this channel
 				// ## is asynchronously closed
 				int nr = src.read(bb);
@@ -446,6 +535,7 @@ public class GlusterFileChannel extends FileChannel {
 					break;
 				bb.flip();
 				int nw = writeAtPositionNoCheck(bb, pos);
+				sizer.record(chunk, nw, System.nanoTime() - start);
 				tw += nw;
 				if (nw != nr)
 					break;
@@ -458,11 +548,32 @@ public class GlusterFileChannel extends FileChannel {
 				return tw;
 			throw x;
 		} finally {
-			UtilBuffers.releaseTemporaryDirectBuffer(bb);
+			GlusterBufferPool.getDefault().release(bb);
 		}
 
 	}
 
+	/*
+	 * The adaptive sizer may grow the chunk size while a transfer is running.
+	 */
+	private ByteBuffer ensureCapacity(ByteBuffer bb, int size) {
+		if (bb.capacity() >= size) {
+			return bb;
+		}
+		GlusterBufferPool.getDefault().release(bb);
+		return GlusterBufferPool.getDefault().acquire(size);
+	}
+
+	GlusterTransferSizer getTransferSizer() {
+		if (null != fileSystem) {
+			return fileSystem.getTransferSizer();
+		}
+		if (null == localTransferSizer) {
+			localTransferSizer = new GlusterTransferSizer();
+		}
+		return localTransferSizer;
+	}
+
 	@Override
 	public int read(ByteBuffer byteBuffer, long position) throws IOException {
 		guardClosed();
@@ -472,24 +583,12 @@ public class GlusterFileChannel extends FileChannel {
 		if (!options.contains(StandardOpenOption.READ)) {
 			throw new NonReadableChannelException();
 		}
-		if (position >= size()) {
-			return -1;
-		}
-		int whence = 0; // SEEK_SET
-		int seek = GLFS.glfs_lseek(fileptr, position, whence);
-		if (seek < 0) {
-			throw new IOException();
-		}
-		byte[] bytes = byteBuffer.array();
-		long read = GLFS.glfs_read(fileptr, bytes, bytes.length, 0);
-
-		if (0 > read) {
-			throw new IOException();
+		if (0 == byteBuffer.remaining()) {
+			return 0;
 		}
-		byteBuffer.position((int) read);
-		seek = GLFS.glfs_lseek(fileptr, this.position, whence);
-		if (0 > seek) {
-			throw new IOException(UtilJNI.strerror());
+		long read = readInto(byteBuffer, position);
+		if (0 == read) {
+			return -1;
 		}
 		return (int) read;
 	}
@@ -510,33 +609,191 @@ public class GlusterFileChannel extends FileChannel {
 	}
 
 	private int writeAtPositionNoCheck(ByteBuffer byteBuffer, long position) throws IOException {
-		try {
-			int bytesToWrite = byteBuffer.remaining();
-			long lsize = size();
-			if (position >= lsize) {
-				/*
-				 * If has to write ouside off seek
-				 */
-				byte[] bytes = Arrays.copyOfRange(byteBuffer.array(), 0, bytesToWrite);
-				byte[] temp = Arrays.copyOf(bytes, bytes.length + (int) (position - lsize));
-				bytesToWrite = temp.length;
-				byteBuffer = ByteBuffer.wrap(temp);
+		/*
+		 * pwrite leaves the shared file offset alone and fills any gap past the
+		 * end of file with a hole, so no seek or size check is needed.
+		 */
+		if (null != writeBehind) {
+			contentChanged();
+			return writeBehind.write(byteBuffer, position);
+		}
+		return writeFrom(byteBuffer, position);
+	}
+
+	/*
+	 * Reads into the [position, limit) window of dst. A negative offset reads at
+	 * the current file offset, anything else is a pread that leaves the shared
+	 * offset alone. libgfapi-jni always fills a byte[] from index 0, so only a
+	 * heap buffer whose window starts at the beginning of its backing array is
+	 * handed over as is; any other buffer is staged through a pooled buffer.
+	 */
+	long readInto(ByteBuffer dst, long offset) throws IOException {
+		drainWriteBehind();
+		if (!startsAtArrayIndexZero(dst)) {
+			return readStaged(dst, offset);
+		}
+		int count = dst.remaining();
+		byte[] bytes = dst.array();
+		long read;
+		if (offset < 0) {
+			syncFileOffset();
+			read = GLFS.glfs_read(fileptr, bytes, count, 0);
+		} else {
+			read = GLFS.glfs_pread(fileptr, bytes, count, offset, 0);
+		}
+		if (read < 0) {
+			throw new IOException(UtilJNI.strerror());
+		}
+		dst.position(dst.position() + (int) read);
+		return read;
+	}
+
+	/*
+	 * Writes the whole [position, limit) window of src, see readInto.
+	 */
+	int writeFrom(ByteBuffer src, long offset) throws IOException {
+		int total = 0;
+		contentChanged();
+		if (offset < 0) {
+			syncFileOffset();
+		}
+		while (src.remaining() > 0) {
+			long at = offset < 0 ? -1 : offset + total;
+			int written;
+			if (startsAtArrayIndexZero(src)) {
+				int count = src.remaining();
+				byte[] bytes = src.array();
+				if (at < 0) {
+					written = GLFS.glfs_write(fileptr, bytes, count, 0);
+				} else {
+					written = GLFS.glfs_pwrite(fileptr, bytes, count, at, 0);
+				}
+				if (written < 0) {
+					throw new IOException(UtilJNI.strerror());
+				}
+				src.position(src.position() + written);
+			} else {
+				written = writeStaged(src, at);
 			}
-			int whence = 0; // SEEK_SET
-			int seek = GLFS.glfs_lseek(fileptr, position, whence);
-			if (seek < 0) {
-				throw new IOException();
+			if (0 == written) {
+				break;
 			}
-			byte[] bytes = byteBuffer.array();
-			long written = GLFS.glfs_write(fileptr, bytes, bytes.length, 0);
-			seek = GLFS.glfs_lseek(fileptr, this.position, whence);
-			if (seek < 0) {
-				throw new IOException();
+			total += written;
+		}
+		return total;
+	}
+
+	/*
+	 * Positional read of count bytes into bytes, from index 0.
+	 */
+	long pread(byte[] bytes, long count, long offset) throws IOException {
+		drainWriteBehind();
+		long read = GLFS.glfs_pread(fileptr, bytes, count, offset, 0);
+		if (read < 0) {
+			throw new IOException(UtilJNI.strerror());
+		}
+		return read;
+	}
+
+	/*
+	 * Positional write of the first count bytes of bytes. Safe to call from the
+	 * write-behind thread: it touches neither the position nor read-ahead.
+	 */
+	void pwriteFully(byte[] bytes, int count, long offset) throws IOException {
+		int written = GLFS.glfs_pwrite(fileptr, bytes, count, offset, 0);
+		int total = Math.max(written, 0);
+		/* libgfapi-jni writes arrays from index 0, so a short write is finished from a copy */
+		while (written > 0 && total < count) {
+			byte[] rest = Arrays.copyOfRange(bytes, total, count);
+			written = GLFS.glfs_pwrite(fileptr, rest, rest.length, offset + total, 0);
+			total += Math.max(written, 0);
+		}
+		if (written < 0) {
+			throw new IOException(UtilJNI.strerror());
+		}
+		if (total < count) {
+			throw new IOException("Short write at offset " + (offset + total));
+		}
+	}
+
+	private void drainWriteBehind() throws IOException {
+		if (null != writeBehind) {
+			writeBehind.drain();
+		}
+	}
+
+	/*
+	 * Read-ahead serves reads with pread, which leaves the descriptor's offset
+	 * behind the channel position. Catch it up before the next relative call.
+	 */
+	private void syncFileOffset() throws IOException {
+		if (!fileOffsetStale) {
+			return;
+		}
+		if (GLFS.glfs_lseek(fileptr, position, 0) < 0) {
+			throw new IOException(UtilJNI.strerror());
+		}
+		fileOffsetStale = false;
+	}
+
+	/*
+	 * Every write path comes through here: prefetched data and cached
+	 * attributes of the file no longer hold.
+	 */
+	private void contentChanged() {
+		if (null != readAhead) {
+			readAhead.invalidate();
+		}
+		if (null != fileSystem) {
+			fileSystem.attributesChanged(path);
+		}
+	}
+
+	private boolean startsAtArrayIndexZero(ByteBuffer buffer) {
+		return buffer.hasArray() && 0 == buffer.arrayOffset() + buffer.position();
+	}
+
+	private long readStaged(ByteBuffer dst, long offset) throws IOException {
+		int count = Math.min(dst.remaining(), MAX_STAGING_SIZE);
+		ByteBuffer staging = GlusterBufferPool.getDefault().acquire(count);
+		try {
+			byte[] bytes = staging.array();
+			long read;
+			if (offset < 0) {
+				syncFileOffset();
+				read = GLFS.glfs_read(fileptr, bytes, count, 0);
+			} else {
+				read = GLFS.glfs_pread(fileptr, bytes, count, offset, 0);
+			}
+			if (read < 0) {
+				throw new IOException(UtilJNI.strerror());
 			}
-			byteBuffer.position((int) written);
-			return (int) written;
+			dst.put(bytes, 0, (int) read);
+			return read;
 		} finally {
+			GlusterBufferPool.getDefault().release(staging);
+		}
+	}
 
+	private int writeStaged(ByteBuffer src, long offset) throws IOException {
+		int count = Math.min(src.remaining(), MAX_STAGING_SIZE);
+		ByteBuffer staging = GlusterBufferPool.getDefault().acquire(count);
+		try {
+			byte[] bytes = staging.array();
+			src.duplicate().get(bytes, 0, count);
+			int written;
+			if (offset < 0) {
+				written = GLFS.glfs_write(fileptr, bytes, count, 0);
+			} else {
+				written = GLFS.glfs_pwrite(fileptr, bytes, count, offset, 0);
+			}
+			if (written < 0) {
+				throw new IOException(UtilJNI.strerror());
+			}
+			src.position(src.position() + written);
+			return written;
+		} finally {
+			GlusterBufferPool.getDefault().release(staging);
 		}
 	}
 
@@ -558,11 +815,31 @@ public class GlusterFileChannel extends FileChannel {
 	@Override
 	protected void implCloseChannel() throws IOException {
 		if (!closed) {
+			if (null != readAhead) {
+				readAhead.close();
+				readAhead = null;
+			}
+			IOException failure = null;
+			if (null != writeBehind) {
+				try {
+					writeBehind.drain();
+				} catch (IOException e) {
+					failure = e;
+				}
+				writeBehind = null;
+			}
 			int close = GLFS.glfs_close(fileptr);
+			closed = true;
+			if (writable && null != fileSystem) {
+				/* write-behind flushes may have landed after the last write call */
+				fileSystem.attributesChanged(path);
+			}
+			if (null != failure) {
+				throw failure;
+			}
 			if (0 != close) {
 				throw new IOException("Close returned nonzero");
 			}
-			closed = true;
 		}
 	}
 
@@ -586,4 +863,31 @@ public class GlusterFileChannel extends FileChannel {
 		return fileSystem;
 	}
 
+	/*
+	 * For channels used only with positional calls from several threads,
+	 * where read-ahead would just hold on to memory.
+	 */
+	void disableReadAhead() {
+		if (null != readAhead) {
+			readAhead.close();
+			readAhead = null;
+		}
+	}
+
+	GlusterReadAhead getReadAhead() {
+		return readAhead;
+	}
+
+	void setReadAhead(GlusterReadAhead readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	GlusterWriteBehind getWriteBehind() {
+		return writeBehind;
+	}
+
+	void setWriteBehind(GlusterWriteBehind writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
 }
@@ -0,0 +1,211 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copies file content between two open channels with positional reads and
+ * writes. A single stream reads the next chunk on a background thread while
+ * the current chunk is written, so the two network round trips overlap. A
+ * parallel copy splits the file into ranges that several workers copy at once.
+ */
+final class GlusterFileCopier {
+	static final int COPY_CHUNK_SIZE = 1024 * 1024;
+
+	private static final ExecutorService executor = GlusterThreads.newDaemonPool("gluster-copy");
+
+	private GlusterFileCopier() {
+	}
+
+	/**
+	 * Copies all of source to target, splitting it into ranges of rangeSize
+	 * bytes that parallelism workers copy concurrently. Each worker holds one
+	 * pooled buffer of at most COPY_CHUNK_SIZE bytes.
+	 */
+	static void copyAll(FileChannel source, FileChannel target, int parallelism, int rangeSize)
+			throws IOException {
+		long size = source.size();
+		if (parallelism <= 1 || size <= rangeSize) {
+			copy(source, target, 0, size, COPY_CHUNK_SIZE);
+			return;
+		}
+		AtomicLong next = new AtomicLong();
+		int workers = (int) Math.min(parallelism, (size + rangeSize - 1) / rangeSize);
+		int chunk = Math.min(rangeSize, COPY_CHUNK_SIZE);
+		List<Future<Void>> futures = new ArrayList<>(workers);
+		for (int i = 0; i < workers; i++) {
+			futures.add(executor.submit(copyRanges(source, target, next, size, rangeSize, chunk)));
+		}
+		try {
+			for (Future<Void> future : futures) {
+				await(future);
+			}
+		} finally {
+			/*
+			 * cancelling would not stop a pread or pwrite under way, and the
+			 * caller closes both files once we return: let no worker claim
+			 * another range, and wait for every one to be done
+			 */
+			next.set(size);
+			for (Future<Void> future : futures) {
+				finish(future);
+			}
+		}
+	}
+
+	/* waits for a task whatever happens, leaving its failure to the one already reported */
+	private static void finish(Future<?> future) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					future.get();
+					return;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					return;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static Callable<Void> copyRanges(final FileChannel source, final FileChannel target,
+			final AtomicLong next, final long size, final int rangeSize, final int chunk) {
+		return new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				ByteBuffer buffer = GlusterBufferPool.getDefault().acquire(chunk);
+				try {
+					long start;
+					while ((start = next.getAndAdd(rangeSize)) < size) {
+						long end = Math.min(start + rangeSize, size);
+						for (long position = start; position < end;) {
+							int read = readFully(source, buffer, position, end, chunk);
+							if (read <= 0) {
+								return null;
+							}
+							buffer.flip();
+							while (buffer.hasRemaining()) {
+								position += target.write(buffer, position);
+							}
+						}
+					}
+					return null;
+				} finally {
+					GlusterBufferPool.getDefault().release(buffer);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Copies size bytes of source starting at start to the same offsets in
+	 * target.
+	 * Returns the number of bytes copied, which is less than size only if the
+	 * source turned out to be shorter.
+	 */
+	static long copy(FileChannel source, FileChannel target, long start, long size, int chunkSize)
+			throws IOException {
+		if (size <= 0) {
+			return 0L;
+		}
+		int chunk = (int) Math.min(size, chunkSize);
+		GlusterBufferPool pool = GlusterBufferPool.getDefault();
+		ByteBuffer[] buffers = new ByteBuffer[] { pool.acquire(chunk), pool.acquire(chunk) };
+		long end = start + size;
+		long position = start;
+		int current = 0;
+		Future<Integer> pending = executor.submit(readAt(source, buffers[current], position, end, chunk));
+		try {
+			while (null != pending) {
+				int read = await(pending);
+				pending = null;
+				if (read <= 0) {
+					break;
+				}
+				ByteBuffer full = buffers[current];
+				long next = position + read;
+				current ^= 1;
+				if (next < end) {
+					pending = executor.submit(readAt(source, buffers[current], next, end, chunk));
+				}
+				full.flip();
+				while (full.hasRemaining()) {
+					position += target.write(full, position);
+				}
+			}
+		} finally {
+			if (null != pending) {
+				/* the read still owns its buffer; let it finish before pooling it */
+				try {
+					pending.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					/* already failing */
+				}
+			}
+			pool.release(buffers[0]);
+			pool.release(buffers[1]);
+		}
+		return position - start;
+	}
+
+	private static Callable<Integer> readAt(final FileChannel source, final ByteBuffer buffer, final long position,
+			final long end, final int chunk) {
+		return new Callable<Integer>() {
+			@Override
+			public Integer call() throws Exception {
+				return readFully(source, buffer, position, end, chunk);
+			}
+		};
+	}
+
+	private static int readFully(FileChannel source, ByteBuffer buffer, long position, long end, int chunk)
+			throws IOException {
+		buffer.clear();
+		buffer.limit((int) Math.min(chunk, end - position));
+		int total = 0;
+		while (buffer.hasRemaining()) {
+			int read = source.read(buffer, position + total);
+			if (read <= 0) {
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	static <T> T await(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while copying");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+}
@@ -3,15 +3,19 @@ package com.peircean.glusterfs;
 import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystem;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.WatchService;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.nio.file.spi.FileSystemProvider;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import com.peircean.glusterfs.borrowed.GlobPattern;
@@ -22,6 +26,7 @@ import com.peircean.glusterfs.borrowed.GlobPattern;
 
 public class GlusterFileSystem extends FileSystem {
 	private static final String SEPARATOR = "/";
+	public static final long DEFAULT_LISTED_ATTRIBUTES_TTL = 1000;
 	private final GlusterFileSystemProvider provider;
 	private final String host;
 	private final String volname;
@@ -35,6 +40,14 @@ public class GlusterFileSystem extends FileSystem {
 	}
 
 	private long volptr;
+	private GlusterTransferSizer transferSizer = new GlusterTransferSizer();
+	private GlusterReadAheadPolicy readAheadPolicy = new GlusterReadAheadPolicy();
+	private int writeBehindBufferSize = GlusterWriteBehind.DEFAULT_BUFFER_SIZE;
+	private GlusterAttributeCache attributeCache = new GlusterAttributeCache();
+	private GlusterNegativeCache negativeCache = new GlusterNegativeCache();
+	private long listedAttributesTtlNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_LISTED_ATTRIBUTES_TTL);
+	/* bumped by every change this client makes, so attributes listed before it are no longer trusted */
+	private final AtomicLong changeCount = new AtomicLong();
 
 	@Override
 	public FileSystemProvider provider() {
@@ -133,6 +146,14 @@ public class GlusterFileSystem extends FileSystem {
 		return new GlusterWatchService();
 	}
 
+	/**
+	 * A watch service that lists watched directories again only when the
+	 * given source of upcall notices says they changed.
+	 */
+	public WatchService newWatchService(GlusterUpcallSource upcalls) throws IOException {
+		return new GlusterWatchService(upcalls);
+	}
+
 	@Override
 	public String toString() {
 		return provider.getScheme() + "://" + host + ":" + volname;
@@ -158,6 +179,115 @@ public class GlusterFileSystem extends FileSystem {
 		this.volptr = volptr;
 	}
 
+	public GlusterTransferSizer getTransferSizer() {
+		return transferSizer;
+	}
+
+	void setTransferSizer(GlusterTransferSizer transferSizer) {
+		this.transferSizer = transferSizer;
+	}
+
+	public GlusterReadAheadPolicy getReadAheadPolicy() {
+		return readAheadPolicy;
+	}
+
+	void setReadAheadPolicy(GlusterReadAheadPolicy readAheadPolicy) {
+		this.readAheadPolicy = readAheadPolicy;
+	}
+
+	public int getWriteBehindBufferSize() {
+		return writeBehindBufferSize;
+	}
+
+	void setWriteBehindBufferSize(int writeBehindBufferSize) {
+		this.writeBehindBufferSize = writeBehindBufferSize;
+	}
+
+	public GlusterAttributeCache getAttributeCache() {
+		return attributeCache;
+	}
+
+	void setAttributeCache(GlusterAttributeCache attributeCache) {
+		this.attributeCache = attributeCache;
+	}
+
+	public GlusterNegativeCache getNegativeCache() {
+		return negativeCache;
+	}
+
+	void setNegativeCache(GlusterNegativeCache negativeCache) {
+		this.negativeCache = negativeCache;
+	}
+
+	/**
+	 * Called after this client created, removed, renamed or modified the
+	 * path; with tree set the path was a directory and everything below it is
+	 * affected too. Drops the cached attributes of the path and of its parent,
+	 * whose size and times move with its entries, and any record of the path
+	 * being missing.
+	 */
+	void pathChanged(Path path, boolean tree) {
+		changeCount.incrementAndGet();
+		String pathString = path.toString();
+		if (tree) {
+			attributeCache.invalidateTree(pathString);
+			negativeCache.invalidateTree(pathString);
+		} else {
+			attributeCache.invalidate(pathString);
+			negativeCache.invalidate(pathString);
+		}
+		Path parent = path.getParent();
+		if (null != parent) {
+			attributeCache.invalidate(parent.toString());
+		}
+	}
+
+	/**
+	 * Called after this client wrote to the file or changed its permissions
+	 * or times.
+	 */
+	void attributesChanged(Path path) {
+		changeCount.incrementAndGet();
+		attributeCache.invalidate(path.toString());
+	}
+
+	public long getListedAttributesTtl() {
+		return TimeUnit.NANOSECONDS.toMillis(listedAttributesTtlNanos);
+	}
+
+	void setListedAttributesTtl(long listedAttributesTtl) {
+		this.listedAttributesTtlNanos = TimeUnit.MILLISECONDS.toNanos(listedAttributesTtl);
+	}
+
+	/**
+	 * Keeps the d_type a directory listing returned for the entry along with
+	 * the path.
+	 */
+	void listed(GlusterPath path, int type) {
+		path.setListed(type, changeCount.get(), System.nanoTime());
+	}
+
+	/**
+	 * The d_type the listing attached to the path; DT_UNKNOWN when the
+	 * listing did not say, is stale, or gave a symbolic link that is to be
+	 * followed.
+	 */
+	int listedType(GlusterPath path, LinkOption... linkOptions) {
+		int type = path.getListedType();
+		if (GlusterListedType.DT_LNK == type && !Arrays.asList(linkOptions).contains(LinkOption.NOFOLLOW_LINKS)) {
+			return GlusterListedType.DT_UNKNOWN;
+		}
+		if (GlusterListedType.DT_UNKNOWN == type || !listingIsFresh(path)) {
+			return GlusterListedType.DT_UNKNOWN;
+		}
+		return type;
+	}
+
+	private boolean listingIsFresh(GlusterPath path) {
+		return path.getListedChangeCount() == changeCount.get()
+				&& System.nanoTime() - path.getListedNanos() < listedAttributesTtlNanos;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
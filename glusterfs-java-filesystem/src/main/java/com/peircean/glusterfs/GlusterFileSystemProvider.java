@@ -9,7 +9,7 @@ import static com.peircean.libgfapi_jni.internal.GLFS.glfs_stat;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.AccessDeniedException;
@@ -40,12 +40,12 @@ import java.nio.file.attribute.FileOwnerAttributeView;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.nio.file.spi.FileSystemProvider;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Predicate;
 
 import com.peircean.libgfapi_jni.internal.GLFS;
@@ -64,6 +64,28 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 	public static final String GLUSTER = "gluster";
 	public static final int GLUSTERD_PORT = 24007;
 	public static final String TCP = "tcp";
+	/** env key: transfer chunk size in bytes, see {@link GlusterTransferSizer} */
+	public static final String TRANSFER_SIZE = "transferSize";
+	/** env key: upper bound for the adaptive transfer chunk size */
+	public static final String TRANSFER_SIZE_MAX = "transferSizeMax";
+	/** env key: grow the transfer chunk size while throughput improves */
+	public static final String TRANSFER_SIZE_ADAPTIVE = "transferSizeAdaptive";
+	/** env key: read-ahead window in bytes, 0 (the default) turns read-ahead off */
+	public static final String READ_AHEAD_WINDOW = "readAheadWindow";
+	/** env key: total read-ahead memory for all channels of the file system */
+	public static final String READ_AHEAD_MAX_MEMORY = "readAheadMaxMemory";
+	/** env key: buffer size for channels opened with GlusterChannelOption.WRITE_BEHIND */
+	public static final String WRITE_BEHIND_BUFFER_SIZE = "writeBehindBufferSize";
+	/** env key: attribute cache time to live in milliseconds, 0 (the default) turns the cache off */
+	public static final String ATTRIBUTE_CACHE_TTL = "attributeCacheTtl";
+	/** env key: maximum number of paths held in the attribute cache */
+	public static final String ATTRIBUTE_CACHE_MAX_ENTRIES = "attributeCacheMaxEntries";
+	/** env key: how long, in milliseconds, a path found missing is remembered; 0 (the default) turns it off */
+	public static final String NEGATIVE_CACHE_TTL = "negativeCacheTtl";
+	/** env key: maximum number of missing paths remembered */
+	public static final String NEGATIVE_CACHE_MAX_ENTRIES = "negativeCacheMaxEntries";
+	/** env key: how long, in milliseconds, the file type returned with a directory listing is trusted */
+	public static final String LISTED_ATTRIBUTES_TTL = "listedAttributesTtl";
 	private static Map<String, GlusterFileSystem> cache = new HashMap<>();
 
 	@Override
@@ -141,10 +163,84 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 			System.out.println("No glfs-logging property found.");
 		}
 		GlusterFileSystem fileSystem = new GlusterFileSystem(this, authority[0], volname, volptr);
+		fileSystem.setTransferSizer(newTransferSizer(stringMap));
+		fileSystem.setReadAheadPolicy(newReadAheadPolicy(stringMap));
+		fileSystem.setWriteBehindBufferSize(
+				intOption(stringMap, WRITE_BEHIND_BUFFER_SIZE, GlusterWriteBehind.DEFAULT_BUFFER_SIZE));
+		fileSystem.setAttributeCache(newAttributeCache(stringMap));
+		fileSystem.setNegativeCache(newNegativeCache(stringMap));
+		fileSystem.setListedAttributesTtl(
+				longOption(stringMap, LISTED_ATTRIBUTES_TTL, GlusterFileSystem.DEFAULT_LISTED_ATTRIBUTES_TTL));
 		cache.put(authorityString, fileSystem);
 		return fileSystem;
 	}
 
+	GlusterTransferSizer newTransferSizer(Map<String, ?> env) {
+		int chunkSize = intOption(env, TRANSFER_SIZE, GlusterTransferSizer.DEFAULT_CHUNK_SIZE);
+		int maxChunkSize = intOption(env, TRANSFER_SIZE_MAX, GlusterTransferSizer.DEFAULT_MAX_CHUNK_SIZE);
+		boolean adaptive = booleanOption(env, TRANSFER_SIZE_ADAPTIVE, false);
+		return new GlusterTransferSizer(chunkSize, maxChunkSize, adaptive);
+	}
+
+	GlusterReadAheadPolicy newReadAheadPolicy(Map<String, ?> env) {
+		int window = intOption(env, READ_AHEAD_WINDOW, GlusterReadAheadPolicy.DEFAULT_WINDOW_SIZE);
+		long maxMemory = longOption(env, READ_AHEAD_MAX_MEMORY, GlusterReadAheadPolicy.DEFAULT_MAX_MEMORY);
+		return new GlusterReadAheadPolicy(window, maxMemory);
+	}
+
+	GlusterAttributeCache newAttributeCache(Map<String, ?> env) {
+		long ttl = longOption(env, ATTRIBUTE_CACHE_TTL, GlusterAttributeCache.DEFAULT_TTL_MILLIS);
+		int maxEntries = intOption(env, ATTRIBUTE_CACHE_MAX_ENTRIES, GlusterAttributeCache.DEFAULT_MAX_ENTRIES);
+		return new GlusterAttributeCache(ttl, maxEntries);
+	}
+
+	GlusterNegativeCache newNegativeCache(Map<String, ?> env) {
+		long ttl = longOption(env, NEGATIVE_CACHE_TTL, GlusterNegativeCache.DEFAULT_TTL_MILLIS);
+		int maxEntries = intOption(env, NEGATIVE_CACHE_MAX_ENTRIES, GlusterNegativeCache.DEFAULT_MAX_ENTRIES);
+		return new GlusterNegativeCache(ttl, maxEntries);
+	}
+
+	static int intOption(Map<String, ?> env, String key, int defaultValue) {
+		if (env == null || env.get(key) == null) {
+			return defaultValue;
+		}
+		Object value = env.get(key);
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		try {
+			return Integer.parseInt(value.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Option " + key + " must be an integer: " + value);
+		}
+	}
+
+	static long longOption(Map<String, ?> env, String key, long defaultValue) {
+		if (env == null || env.get(key) == null) {
+			return defaultValue;
+		}
+		Object value = env.get(key);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		try {
+			return Long.parseLong(value.toString().trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Option " + key + " must be an integer: " + value);
+		}
+	}
+
+	static boolean booleanOption(Map<String, ?> env, String key, boolean defaultValue) {
+		if (env == null || env.get(key) == null) {
+			return defaultValue;
+		}
+		Object value = env.get(key);
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		return Boolean.parseBoolean(value.toString().trim());
+	}
+
 	String[] parseAuthority(String authority) {
 		if (!authority.contains(":")) {
 			throw new IllegalArgumentException("URI must be of the form 'gluster://server:volume/path");
@@ -225,6 +321,16 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		return newFileChannelHelper(path, options, attrs);
 	}
 
+	@Override
+	public AsynchronousFileChannel newAsynchronousFileChannel(Path path, Set<? extends OpenOption> options,
+			ExecutorService executor, FileAttribute<?>... attrs) throws IOException {
+		if (options.contains(GlusterChannelOption.WRITE_BEHIND)) {
+			throw new UnsupportedOperationException("Write-behind is not supported on asynchronous channels");
+		}
+		GlusterFileChannel channel = (GlusterFileChannel) newFileChannelHelper(path, options, attrs);
+		return new GlusterAsynchronousFileChannel(channel, executor);
+	}
+
 	FileChannel newFileChannelHelper(Path path, Set<? extends OpenOption> options, FileAttribute<?>[] attrs)
 			throws IOException {
 		GlusterFileChannel channel = new GlusterFileChannel();
@@ -262,7 +368,9 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 			mode = GlusterFileAttributes.parseAttrs(fileAttributes);
 		}
 
-		int ret = GLFS.glfs_mkdir(((GlusterFileSystem) path.getFileSystem()).getVolptr(), path.toString(), mode);
+		GlusterFileSystem fileSystem = (GlusterFileSystem) path.getFileSystem();
+		int ret = GLFS.glfs_mkdir(fileSystem.getVolptr(), path.toString(), mode);
+		fileSystem.pathChanged(path, false);
 
 		if (ret < 0) {
 			throw new IOException(path.toString());
@@ -279,13 +387,17 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 				throw new DirectoryNotEmptyException(path.toString());
 			}
 
-			int ret = GLFS.glfs_rmdir(((GlusterFileSystem) path.getFileSystem()).getVolptr(), path.toString());
+			GlusterFileSystem fileSystem = (GlusterFileSystem) path.getFileSystem();
+			int ret = GLFS.glfs_rmdir(fileSystem.getVolptr(), path.toString());
+			fileSystem.pathChanged(path, true);
 
 			if (ret < 0) {
 				throw new IOException(path.toString());
 			}
 		} else {
-			int ret = GLFS.glfs_unlink(((GlusterFileSystem) path.getFileSystem()).getVolptr(), path.toString());
+			GlusterFileSystem fileSystem = (GlusterFileSystem) path.getFileSystem();
+			int ret = GLFS.glfs_unlink(fileSystem.getVolptr(), path.toString());
+			fileSystem.pathChanged(path, false);
 
 			if (ret < 0) {
 				throw new IOException(path.toString());
@@ -293,6 +405,16 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		}
 	}
 
+	/**
+	 * Deletes path and everything below it with {@link GlusterTreeDeleter},
+	 * listing each directory once and unlinking its entries in parallel
+	 * batches. Failures are collected in the result rather than thrown.
+	 */
+	public GlusterTreeDeleter.Result deleteRecursively(Path path, int parallelism, GlusterTreeDeleter.Listener listener)
+			throws IOException {
+		return new GlusterTreeDeleter(parallelism).delete(path, listener);
+	}
+
 	@Override
 	public void copy(Path path, Path path2, CopyOption... copyOptions) throws IOException {
 		guardAbsolutePath(path);
@@ -306,6 +428,7 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 
 		boolean overwrite = false;
 		boolean copyAttributes = false;
+		GlusterCopyOption glusterCopyOption = null;
 		for (CopyOption co : copyOptions) {
 			if (StandardCopyOption.ATOMIC_MOVE.equals(co)) {
 				throw new UnsupportedOperationException("Atomic move not supported");
@@ -316,6 +439,9 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 			if (StandardCopyOption.COPY_ATTRIBUTES.equals(co)) {
 				copyAttributes = true;
 			}
+			if (co instanceof GlusterCopyOption) {
+				glusterCopyOption = (GlusterCopyOption) co;
+			}
 		}
 
 		if (!overwrite && targetExists) {
@@ -331,7 +457,11 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 				Files.delete(path2);
 			}
 			Files.createFile(path2, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-rw-r--")));
-			copyFileContent(path, path2);
+			if (null == glusterCopyOption) {
+				copyFileContent(path, path2);
+			} else {
+				copyFileContent(path, path2, glusterCopyOption.getParallelism(), glusterCopyOption.getRangeSize());
+			}
 			if (copyAttributes) {
 				copyFileAttributes(path, path2);
 			}
@@ -343,9 +473,11 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		long volptr = ((GlusterFileSystem) path.getFileSystem()).getVolptr();
 		int retStat = glfs_stat(volptr, path.toString(), stat);
 		int retChmod = 0;
-		if (path2.getFileSystem() instanceof GlusterFileSystem) {
+		FileSystem targetFileSystem = path2.getFileSystem();
+		if (targetFileSystem instanceof GlusterFileSystem) {
 			if (0664 != stat.st_mode) {
 				retChmod = GLFS.glfs_chmod(volptr, path2.toString(), stat.st_mode);
+				((GlusterFileSystem) targetFileSystem).pathChanged(path2, false);
 			}
 		}
 		if (retStat < 0 || retChmod < 0) {
@@ -354,28 +486,41 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 	}
 
 	void copyFileContent(Path path, Path path2) throws IOException {
+		copyFileContent(path, path2, 1, GlusterCopyOption.DEFAULT_RANGE_SIZE);
+	}
+
+	void copyFileContent(Path path, Path path2, int parallelism, int rangeSize) throws IOException {
 		Set<StandardOpenOption> options = new HashSet<>();
 		options.add(StandardOpenOption.READ);
-
-		// TODO: investigate 8kB byte array limitation
-		byte[] readBytes = new byte[8192];
-		FileChannel channel = newFileChannel(path, options);
-		ByteBuffer readBuffer = ByteBuffer.wrap(readBytes);
-
-		boolean writtenTo = false;
-		int read = channel.read(readBuffer);
-
-		while (read > 0) {
-			byte[] writeBytes = Arrays.copyOf(readBytes, read);
-			if (!writtenTo) {
-				Files.write(path2, writeBytes, StandardOpenOption.TRUNCATE_EXISTING);
-				writtenTo = true;
-			} else {
-				Files.write(path2, writeBytes, StandardOpenOption.APPEND);
+		Set<StandardOpenOption> targetOptions = new HashSet<>();
+		targetOptions.add(StandardOpenOption.WRITE);
+		targetOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+
+		/*
+		 * One channel per side for the whole copy. Between Gluster paths the
+		 * data moves with pread/pwrite in large pipelined chunks; the binding
+		 * has no glfs_copy_file_range, so this is the closest to a server side
+		 * copy available. With a GlusterCopyOption several ranges are copied
+		 * at once over the same two channels.
+		 */
+		FileChannel source = newFileChannel(path, options);
+		try {
+			FileChannel target = newTargetChannel(path2, targetOptions);
+			try {
+				GlusterFileCopier.copyAll(source, target, parallelism, rangeSize);
+			} finally {
+				target.close();
 			}
-			read = channel.read(readBuffer);
+		} finally {
+			source.close();
 		}
-		channel.close();
+	}
+
+	FileChannel newTargetChannel(Path path, Set<StandardOpenOption> options) throws IOException {
+		if (path.getFileSystem() instanceof GlusterFileSystem) {
+			return newFileChannel(path, options);
+		}
+		return FileChannel.open(path, options);
 	}
 
 	boolean directoryIsEmpty(Path path) throws IOException {
@@ -418,8 +563,11 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		if (!fileSystem.equals(path2.getFileSystem())) {
 			throw new UnsupportedOperationException("Can not move file to a different file system");
 		}
-		GLFS.glfs_rename(((GlusterFileSystem) fileSystem).getVolptr(), ((GlusterPath) path).getString(),
+		GlusterFileSystem glusterFileSystem = (GlusterFileSystem) fileSystem;
+		GLFS.glfs_rename(glusterFileSystem.getVolptr(), ((GlusterPath) path).getString(),
 				((GlusterPath) path2).getString());
+		glusterFileSystem.pathChanged(path, true);
+		glusterFileSystem.pathChanged(path2, true);
 	}
 
 	void guardFileExists(Path path) throws NoSuchFileException {
@@ -487,15 +635,29 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 
 	@Override
 	public void checkAccess(Path path, AccessMode... accessModes) throws IOException {
-		long volptr = ((GlusterFileSystem) path.getFileSystem()).getVolptr();
+		GlusterFileSystem fileSystem = (GlusterFileSystem) path.getFileSystem();
+		long volptr = fileSystem.getVolptr();
 		String pathString = ((GlusterPath) path).getString();
 
-		stat stat = new stat();
-		int ret = GLFS.glfs_lstat(volptr, pathString, stat);
-
-		if (-1 == ret) {
+		GlusterNegativeCache negativeCache = GlusterNegativeCache.of(fileSystem);
+		if (null != negativeCache && negativeCache.isMissing(pathString)) {
 			throw new NoSuchFileException("");
 		}
+		GlusterAttributeCache cache = GlusterAttributeCache.of(fileSystem);
+		if (null == cache || null == cache.get(pathString, false)) {
+			stat stat = new stat();
+			int ret = GLFS.glfs_lstat(volptr, pathString, stat);
+
+			if (-1 == ret) {
+				if (null != negativeCache) {
+					negativeCache.addMissing(pathString);
+				}
+				throw new NoSuchFileException("");
+			}
+			if (null != cache) {
+				cache.put(pathString, false, GlusterFileAttributes.fromStat(stat));
+			}
+		}
 
 		for (AccessMode m : accessModes) {
 			int access = GLFS.glfs_access(volptr, pathString, modeInt(m));
@@ -561,15 +723,38 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		}
 		int ret;
 		String pathString = ((GlusterPath) path).getString();
+		GlusterFileSystem fileSystem = (GlusterFileSystem) path.getFileSystem();
+		/*
+		 * Only lstat failures are recorded as missing paths: a stat failure may
+		 * be a dangling symlink, which exists as far as lstat is concerned.
+		 */
+		GlusterNegativeCache negativeCache = GlusterNegativeCache.of(fileSystem);
+		if (null != negativeCache && negativeCache.isMissing(pathString)) {
+			throw new NoSuchFileException("");
+		}
+		GlusterAttributeCache cache = GlusterAttributeCache.of(fileSystem);
+		if (null != cache) {
+			GlusterFileAttributes cached = cache.get(pathString, followSymlinks);
+			if (null != cached) {
+				return (A) cached;
+			}
+		}
 		if (followSymlinks) {
-			ret = GLFS.glfs_stat(((GlusterFileSystem) path.getFileSystem()).getVolptr(), pathString, stat);
+			ret = GLFS.glfs_stat(fileSystem.getVolptr(), pathString, stat);
 		} else {
-			ret = GLFS.glfs_lstat(((GlusterFileSystem) path.getFileSystem()).getVolptr(), pathString, stat);
+			ret = GLFS.glfs_lstat(fileSystem.getVolptr(), pathString, stat);
 		}
 		if (-1 == ret) {
+			if (null != negativeCache && !followSymlinks) {
+				negativeCache.addMissing(pathString);
+			}
 			throw new NoSuchFileException("");
 		}
-		return (A) GlusterFileAttributes.fromStat(stat);
+		GlusterFileAttributes attributes = GlusterFileAttributes.fromStat(stat);
+		if (null != cache) {
+			cache.put(pathString, followSymlinks, attributes);
+		}
+		return (A) attributes;
 	}
 
 	@Override
@@ -618,6 +803,7 @@ public class GlusterFileSystemProvider extends FileSystemProvider {
 		GlusterFileSystem fileSystem = (GlusterFileSystem) link.getFileSystem();
 		long volptr = fileSystem.getVolptr();
 		int ret = GLFS.glfs_symlink(volptr, target.toString(), linkPath);
+		fileSystem.pathChanged(link, false);
 		if (0 != ret) {
 			throw new IOException("Unknown error creating symlink: " + linkPath);
 		}
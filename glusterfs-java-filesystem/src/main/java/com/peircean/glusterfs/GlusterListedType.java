@@ -0,0 +1,36 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+/**
+ * File types as the d_type of a directory entry gives them, and type checks
+ * answered from the d_type a listing left on a Gluster path. Only for callers
+ * that want nothing but the type: readAttributes always stats, so its callers
+ * get the size and times of a file that still exists.
+ */
+final class GlusterListedType {
+	static final int DT_UNKNOWN = 0;
+	static final int DT_DIR = 4;
+	static final int DT_REG = 8;
+	static final int DT_LNK = 10;
+
+	private GlusterListedType() {
+	}
+
+	/**
+	 * Files.isDirectory, answered from the d_type of a listed Gluster path
+	 * while the listing is fresh.
+	 */
+	static boolean isDirectory(Path path, LinkOption... linkOptions) {
+		if (path instanceof GlusterPath) {
+			GlusterPath glusterPath = (GlusterPath) path;
+			int type = glusterPath.getFileSystem().listedType(glusterPath, linkOptions);
+			if (DT_UNKNOWN != type) {
+				return DT_DIR == type;
+			}
+		}
+		return Files.isDirectory(path, linkOptions);
+	}
+}
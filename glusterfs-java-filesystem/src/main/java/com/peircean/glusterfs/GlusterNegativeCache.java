@@ -0,0 +1,139 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.FileSystem;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers, for a short time, paths a lookup found missing, so repeated
+ * existence probes of the same absent path are answered without a round trip.
+ * Entries are dropped when this client creates the path or moves something
+ * over it or one of its parents; paths created by other clients show up once
+ * the entry expires. A time to live of zero turns the cache off.
+ */
+public class GlusterNegativeCache {
+	public static final long DEFAULT_TTL_MILLIS = 0;
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final long ttlNanos;
+	private final int maxEntries;
+	private final Map<String, Long> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public GlusterNegativeCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_ENTRIES);
+	}
+
+	public GlusterNegativeCache(long ttlMillis, final int maxEntries) {
+		if (ttlMillis < 0 || maxEntries < 0) {
+			throw new IllegalArgumentException("Negative cache settings can't be negative");
+		}
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * The negative cache of the file system, or null when it has none or has
+	 * it turned off.
+	 */
+	static GlusterNegativeCache of(FileSystem fileSystem) {
+		if (!(fileSystem instanceof GlusterFileSystem)) {
+			return null;
+		}
+		GlusterNegativeCache cache = ((GlusterFileSystem) fileSystem).getNegativeCache();
+		if (null == cache || !cache.isEnabled()) {
+			return null;
+		}
+		return cache;
+	}
+
+	public boolean isEnabled() {
+		return ttlNanos > 0 && maxEntries > 0;
+	}
+
+	public long getTtlMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(ttlNanos);
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * True when the path was recently found missing.
+	 */
+	public boolean isMissing(String path) {
+		if (!isEnabled()) {
+			return false;
+		}
+		synchronized (this) {
+			Long created = entries.get(path);
+			if (null != created) {
+				if (System.nanoTime() - created < ttlNanos) {
+					hits.incrementAndGet();
+					return true;
+				}
+				entries.remove(path);
+			}
+		}
+		misses.incrementAndGet();
+		return false;
+	}
+
+	public void addMissing(String path) {
+		if (!isEnabled()) {
+			return;
+		}
+		Long created = System.nanoTime();
+		synchronized (this) {
+			entries.put(path, created);
+		}
+	}
+
+	public synchronized void invalidate(String path) {
+		entries.remove(path);
+	}
+
+	/**
+	 * Drops the path and everything below it, for a directory that was
+	 * created by a rename.
+	 */
+	public synchronized void invalidateTree(String path) {
+		entries.remove(path);
+		String prefix = path.endsWith("/") ? path : path + "/";
+		Iterator<String> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().startsWith(prefix)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+	}
+}
@@ -31,6 +31,10 @@ public class GlusterPath implements Path {
 	private String[] parts;
 	private String pathString;
 	private boolean absolute;
+	/* d_type the directory listing that produced this path gave, 0 (DT_UNKNOWN) when it did not say */
+	private int listedType;
+	private long listedChangeCount;
+	private long listedNanos;
 
 	public GlusterPath(GlusterFileSystem fileSystem, String path) {
 		if (null == fileSystem) {
@@ -199,6 +203,26 @@ public class GlusterPath implements Path {
 		return new GlusterPath(fileSystem, newParts, absolute);
 	}
 
+	/**
+	 * The entry of this directory with the given name, which is a single path
+	 * element, built without parsing.
+	 */
+	GlusterPath child(String name) {
+		GlusterPath child;
+		String separator = fileSystem.getSeparator();
+		if (parts.length == 1 && parts[0].isEmpty()) {
+			child = new GlusterPath(fileSystem, new String[] { name }, absolute);
+			child.pathString = absolute ? separator + name : name;
+		} else {
+			String[] childParts = Arrays.copyOf(parts, parts.length + 1);
+			childParts[parts.length] = name;
+			child = new GlusterPath(fileSystem, childParts, absolute);
+			String parent = getString();
+			child.pathString = parent.endsWith(separator) ? parent + name : parent + separator + name;
+		}
+		return child;
+	}
+
 	@Override
 	public Path resolve(String s) {
 		return resolve(new GlusterPath(fileSystem, s));
@@ -286,7 +310,28 @@ public class GlusterPath implements Path {
 	@Override
 	public WatchKey register(WatchService watchService, WatchEvent.Kind<?>[] kinds, WatchEvent.Modifier... modifiers)
 			throws IOException {
-		throw new UnsupportedOperationException("GlusterWatchService does not support modifiers at this time.");
+		boolean recursive = false;
+		for (WatchEvent.Modifier modifier : modifiers) {
+			if (isFileTree(modifier)) {
+				recursive = true;
+			} else if (!isSensitivity(modifier)) {
+				throw new UnsupportedOperationException("GlusterWatchService does not support modifier " + modifier);
+			}
+		}
+		guardRegisterWatchService(watchService);
+		guardRegisterWatchDirectory();
+
+		return ((GlusterWatchService) watchService).registerPath(this, recursive, kinds);
+	}
+
+	/* the JDK's own FILE_TREE lives in com.sun.nio.file, so it is recognised by name */
+	static boolean isFileTree(WatchEvent.Modifier modifier) {
+		return GlusterWatchModifier.FILE_TREE == modifier || "FILE_TREE".equals(modifier.name());
+	}
+
+	/* the JDK's sensitivity modifiers tune polling intervals; the watch service sets its own */
+	static boolean isSensitivity(WatchEvent.Modifier modifier) {
+		return "HIGH".equals(modifier.name()) || "MEDIUM".equals(modifier.name()) || "LOW".equals(modifier.name());
 	}
 
 	@Override
@@ -432,4 +477,22 @@ public class GlusterPath implements Path {
 	public void setAbsolute(boolean absolute) {
 		this.absolute = absolute;
 	}
+
+	int getListedType() {
+		return listedType;
+	}
+
+	long getListedChangeCount() {
+		return listedChangeCount;
+	}
+
+	long getListedNanos() {
+		return listedNanos;
+	}
+
+	void setListed(int listedType, long listedChangeCount, long listedNanos) {
+		this.listedType = listedType;
+		this.listedChangeCount = listedChangeCount;
+		this.listedNanos = listedNanos;
+	}
 }
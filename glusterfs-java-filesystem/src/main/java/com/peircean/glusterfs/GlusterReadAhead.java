@@ -0,0 +1,242 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Read-ahead for the relative reads of one channel. Once a few reads in a row
+ * start where the previous one ended, the channel's data is fetched a window
+ * at a time with pread, and the next window is prefetched on a background
+ * thread as soon as half of the current one has been consumed. Reads are then
+ * served from memory. Any other access pattern goes straight to the channel.
+ * <p>
+ * Each channel counts two windows against the file system's read-ahead
+ * memory budget, but takes them from the shared {@link GlusterBufferPool} only
+ * once it reads sequentially, reuses them from then on, and gives them back
+ * when closed.
+ */
+class GlusterReadAhead {
+	static final int SEQUENTIAL_THRESHOLD = 2;
+
+	private static final ExecutorService executor = GlusterThreads.newDaemonPool("gluster-readahead");
+
+	private final GlusterFileChannel channel;
+	private final GlusterReadAheadPolicy policy;
+	private final int windowSize;
+
+	private Window current;
+	private Window spare;
+	private Future<Window> pending;
+	/* tops up short reads; fills never overlap, so one does for both windows */
+	private ByteBuffer scratch;
+	private long lastEnd = -1;
+	private int sequential;
+
+	private static class Window {
+		final int size;
+		/* from the pool, and only once the window is first filled */
+		ByteBuffer buffer;
+		long offset = -1;
+		int length;
+
+		Window(int size) {
+			this.size = size;
+		}
+
+		byte[] data() {
+			if (null == buffer) {
+				buffer = GlusterBufferPool.getDefault().acquire(size);
+			}
+			return buffer.array();
+		}
+
+		boolean covers(long position) {
+			return offset >= 0 && position >= offset && position < offset + length;
+		}
+
+		long end() {
+			return offset + length;
+		}
+
+		boolean atEndOfFile() {
+			return length < size;
+		}
+
+		void release() {
+			GlusterBufferPool.getDefault().release(buffer);
+			buffer = null;
+			offset = -1;
+		}
+	}
+
+	private GlusterReadAhead(GlusterFileChannel channel, GlusterReadAheadPolicy policy) {
+		this.channel = channel;
+		this.policy = policy;
+		this.windowSize = policy.getWindowSize();
+		this.current = new Window(windowSize);
+		this.spare = new Window(windowSize);
+	}
+
+	/**
+	 * Returns a read-ahead for the channel, or null if read-ahead is off or the
+	 * file system's memory budget is used up.
+	 */
+	static GlusterReadAhead create(GlusterFileChannel channel, GlusterReadAheadPolicy policy) {
+		if (null == policy || !policy.isEnabled() || !policy.reserve(2L * policy.getWindowSize())) {
+			return null;
+		}
+		return new GlusterReadAhead(channel, policy);
+	}
+
+	/**
+	 * Reads into dst from the given file position. Returns the number of bytes
+	 * read, zero at end of file.
+	 */
+	long read(ByteBuffer dst, long position) throws IOException {
+		sequential = position == lastEnd ? sequential + 1 : 0;
+		long read = serve(dst, position);
+		if (0 == read && null != pending && pendingOffset() == position && swapInPending()) {
+			read = serve(dst, position);
+		}
+		if (0 == read && sequential >= SEQUENTIAL_THRESHOLD) {
+			discardPending();
+			fill(current, position);
+			read = serve(dst, position);
+			if (0 == read) {
+				lastEnd = position;
+				return 0;
+			}
+		}
+		if (0 == read) {
+			policy.recordMiss();
+			read = channel.readInto(dst, position);
+		} else {
+			policy.recordHit();
+		}
+		lastEnd = position + read;
+		maybePrefetch();
+		return read;
+	}
+
+	/**
+	 * Drops the cached windows, after a write to the file.
+	 */
+	void invalidate() {
+		discardPending();
+		current.offset = -1;
+		lastEnd = -1;
+		sequential = 0;
+	}
+
+	void close() {
+		invalidate();
+		current.release();
+		spare.release();
+		GlusterBufferPool.getDefault().release(scratch);
+		scratch = null;
+		policy.release(2L * windowSize);
+	}
+
+	/* how many windows hold a pooled buffer */
+	int getWindowsHeld() {
+		return (null == current.buffer ? 0 : 1) + (null == spare.buffer ? 0 : 1);
+	}
+
+	ByteBuffer getScratch() {
+		return scratch;
+	}
+
+	private long serve(ByteBuffer dst, long position) {
+		if (!current.covers(position)) {
+			return 0;
+		}
+		int from = (int) (position - current.offset);
+		int n = Math.min(dst.remaining(), current.length - from);
+		dst.put(current.buffer.array(), from, n);
+		return n;
+	}
+
+	private void maybePrefetch() {
+		if (null != pending || sequential < SEQUENTIAL_THRESHOLD || current.offset < 0 || current.atEndOfFile()) {
+			return;
+		}
+		if (lastEnd - current.offset < current.length / 2) {
+			return;
+		}
+		final Window target = spare;
+		final long offset = current.end();
+		target.offset = offset;
+		target.length = 0;
+		pending = executor.submit(new Callable<Window>() {
+			@Override
+			public Window call() throws Exception {
+				fill(target, offset);
+				return target;
+			}
+		});
+	}
+
+	private long pendingOffset() {
+		return spare.offset;
+	}
+
+	/* a failed prefetch is dropped, and the read goes to the file itself, where a lasting problem shows again */
+	private boolean swapInPending() throws InterruptedIOException {
+		Window next;
+		try {
+			next = pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for read-ahead");
+		} catch (ExecutionException e) {
+			pending = null;
+			spare.offset = -1;
+			return false;
+		}
+		pending = null;
+		spare = current;
+		current = next;
+		return true;
+	}
+
+	private void discardPending() {
+		if (null == pending) {
+			return;
+		}
+		/* the prefetch is writing into the spare window; let it finish first */
+		try {
+			pending.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			/* nobody asked for this data, so its failure doesn't matter */
+		}
+		pending = null;
+		spare.offset = -1;
+	}
+
+	private void fill(Window window, long offset) throws IOException {
+		int size = window.size;
+		byte[] data = window.data();
+		long read = channel.pread(data, size, offset);
+		int total = (int) Math.max(read, 0);
+		/* libgfapi-jni fills arrays from index 0, so a short read is topped up through a scratch array */
+		while (read > 0 && total < size) {
+			if (null == scratch) {
+				scratch = GlusterBufferPool.getDefault().acquire(size);
+			}
+			read = channel.pread(scratch.array(), size - total, offset + total);
+			if (read > 0) {
+				System.arraycopy(scratch.array(), 0, data, total, (int) read);
+				total += read;
+			}
+		}
+		window.offset = offset;
+		window.length = total;
+	}
+}
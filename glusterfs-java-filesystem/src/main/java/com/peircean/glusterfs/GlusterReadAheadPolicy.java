@@ -0,0 +1,79 @@
+package com.peircean.glusterfs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-ahead settings of one file system, and the account of memory its open
+ * channels hold in read-ahead windows. A window size of zero turns read-ahead
+ * off.
+ */
+public class GlusterReadAheadPolicy {
+	public static final int DEFAULT_WINDOW_SIZE = 0;
+	public static final long DEFAULT_MAX_MEMORY = 64L * 1024 * 1024;
+
+	private final int windowSize;
+	private final long maxMemory;
+	private final AtomicLong memoryInUse = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public GlusterReadAheadPolicy() {
+		this(DEFAULT_WINDOW_SIZE, DEFAULT_MAX_MEMORY);
+	}
+
+	public GlusterReadAheadPolicy(int windowSize, long maxMemory) {
+		if (windowSize < 0 || maxMemory < 0) {
+			throw new IllegalArgumentException("Read-ahead sizes can't be negative");
+		}
+		this.windowSize = windowSize;
+		this.maxMemory = maxMemory;
+	}
+
+	public boolean isEnabled() {
+		return windowSize > 0;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public long getMaxMemory() {
+		return maxMemory;
+	}
+
+	public long getMemoryInUse() {
+		return memoryInUse.get();
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+	boolean reserve(long bytes) {
+		while (true) {
+			long used = memoryInUse.get();
+			if (used + bytes > maxMemory) {
+				return false;
+			}
+			if (memoryInUse.compareAndSet(used, used + bytes)) {
+				return true;
+			}
+		}
+	}
+
+	void release(long bytes) {
+		memoryInUse.addAndGet(-bytes);
+	}
+
+	void recordHit() {
+		hits.incrementAndGet();
+	}
+
+	void recordMiss() {
+		misses.incrementAndGet();
+	}
+}
@@ -0,0 +1,66 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams over directories that, unlike {@link Files#list(Path)} and
+ * {@link Files#walk(Path, java.nio.file.FileVisitOption...)}, split well, so
+ * {@code parallel()} really spreads the work: a listing splits into batches
+ * of entries and a walk into subdirectories. Close the returned streams, as
+ * with the Files methods, to release the directories they hold open.
+ */
+public final class GlusterStreams {
+
+	private GlusterStreams() {
+	}
+
+	/**
+	 * Entries of dir, read in batches on Gluster paths. Other paths get their
+	 * provider's iterator, split the way the JDK splits any iterator.
+	 */
+	public static Stream<Path> list(Path dir) throws IOException {
+		final DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+		return StreamSupport.stream(stream.spliterator(), false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		});
+	}
+
+	public static Stream<Path> walk(Path start) throws IOException {
+		return walk(start, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * start and every entry up to maxDepth levels below it, without following
+	 * symbolic links, in no particular order. Listing failures surface from
+	 * the stream as {@link UncheckedIOException}.
+	 */
+	public static Stream<Path> walk(Path start, int maxDepth) throws IOException {
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("maxDepth can't be negative");
+		}
+		/* fail here, like Files.walk, rather than from the stream */
+		Files.readAttributes(start, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+		final GlusterTreeSpliterator spliterator = new GlusterTreeSpliterator(start, maxDepth);
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				spliterator.close();
+			}
+		});
+	}
+}
@@ -0,0 +1,41 @@
+package com.peircean.glusterfs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Background thread pools shared by all file systems of the provider. The
+ * threads are daemons so an idle pool never keeps the JVM alive.
+ */
+final class GlusterThreads {
+
+	private GlusterThreads() {
+	}
+
+	static ExecutorService newDaemonPool(String name) {
+		return Executors.newCachedThreadPool(daemonThreads(name));
+	}
+
+	static ExecutorService newFixedDaemonPool(String name, int threads) {
+		return Executors.newFixedThreadPool(threads, daemonThreads(name));
+	}
+
+	static ScheduledThreadPoolExecutor newDaemonScheduler(String name) {
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, daemonThreads(name));
+		scheduler.setRemoveOnCancelPolicy(true);
+		return scheduler;
+	}
+
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,121 @@
+package com.peircean.glusterfs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the chunk size used by the channel transfer loops of one file
+ * system. In fixed mode the chunk size never changes. In adaptive mode it
+ * doubles, up to the maximum, for as long as each step gives a clear
+ * throughput gain over the previous one. The first step that does not is
+ * undone and the size stays put from then on.
+ * <p>
+ * The getters double as the metrics surface: the chosen chunk size and the
+ * number of transfers and bytes measured so far.
+ */
+public class GlusterTransferSizer {
+	public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+	public static final int DEFAULT_MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+	/* a step must be this much faster than the previous one to keep growing */
+	private static final double MIN_GAIN = 1.10;
+	/* full chunks to time at each size before deciding */
+	private static final int SAMPLES_PER_STEP = 4;
+
+	private final boolean adaptive;
+	private final int maxChunkSize;
+	private volatile int chunkSize;
+	private volatile boolean settled;
+
+	private double bestThroughput;
+	/* the size before the last step, which the cap may have made less than a doubling */
+	private int previousChunkSize;
+	private long sampleBytes;
+	private long sampleNanos;
+	private int samples;
+
+	private final AtomicLong transfers = new AtomicLong();
+	private final AtomicLong bytesTransferred = new AtomicLong();
+
+	public GlusterTransferSizer() {
+		this(DEFAULT_CHUNK_SIZE, DEFAULT_MAX_CHUNK_SIZE, false);
+	}
+
+	public GlusterTransferSizer(int chunkSize, int maxChunkSize, boolean adaptive) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		this.maxChunkSize = Math.max(chunkSize, maxChunkSize);
+		this.adaptive = adaptive;
+		this.settled = !adaptive;
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getMaxChunkSize() {
+		return maxChunkSize;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public boolean isSettled() {
+		return settled;
+	}
+
+	public long getTransferCount() {
+		return transfers.get();
+	}
+
+	public long getBytesTransferred() {
+		return bytesTransferred.get();
+	}
+
+	/**
+	 * Records one transfer step of bytes bytes, attempted with the given chunk
+	 * size, that took nanos nanoseconds.
+	 */
+	public void record(int chunk, long bytes, long nanos) {
+		transfers.incrementAndGet();
+		bytesTransferred.addAndGet(bytes);
+		if (settled || bytes < chunk || nanos <= 0) {
+			return;
+		}
+		synchronized (this) {
+			if (settled || chunk != chunkSize) {
+				return;
+			}
+			sampleBytes += bytes;
+			sampleNanos += nanos;
+			if (++samples < SAMPLES_PER_STEP) {
+				return;
+			}
+			double throughput = (double) sampleBytes / sampleNanos;
+			sampleBytes = 0;
+			sampleNanos = 0;
+			samples = 0;
+			if (throughput < bestThroughput * MIN_GAIN) {
+				/* the last doubling did not pay for itself, go back */
+				chunkSize = previousChunkSize;
+				settled = true;
+				return;
+			}
+			bestThroughput = throughput;
+			if (chunkSize >= maxChunkSize) {
+				settled = true;
+				return;
+			}
+			previousChunkSize = chunkSize;
+			chunkSize = (int) Math.min((long) chunkSize * 2, maxChunkSize);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "GlusterTransferSizer [chunkSize=" + chunkSize + ", maxChunkSize=" + maxChunkSize + ", adaptive="
+				+ adaptive + ", settled=" + settled + ", transfers=" + transfers + ", bytesTransferred="
+				+ bytesTransferred + "]";
+	}
+}
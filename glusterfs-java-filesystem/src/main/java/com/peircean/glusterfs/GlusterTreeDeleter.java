@@ -0,0 +1,248 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.peircean.libgfapi_jni.internal.GLFS;
+import com.peircean.libgfapi_jni.internal.UtilJNI;
+
+/**
+ * Deletes a directory tree on a ForkJoinPool. Every directory is listed once;
+ * its subdirectories are deleted as tasks of their own and its other entries
+ * are unlinked in batches, several batches at once, and the directory itself
+ * is removed once everything below it is gone. Entries are removed without
+ * the existence and emptiness checks {@link Files#delete(Path)} makes, and on
+ * Gluster paths the entry type comes from the listing.
+ * <p>
+ * A failure does not stop the delete: it is reported, the directories above
+ * the failed entry are left in place, and the rest of the tree is deleted.
+ * Symbolic links are removed, not followed.
+ */
+public final class GlusterTreeDeleter {
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	public interface Listener {
+		/** Called, from the deleting threads, for every entry removed. */
+		void deleted(Path path);
+
+		/** Called, from the deleting threads, for every entry that could not be listed or removed. */
+		void failed(Path path, IOException e);
+	}
+
+	public static final class Result {
+		private final long deleted;
+		private final Map<Path, IOException> failures;
+
+		Result(long deleted, Map<Path, IOException> failures) {
+			this.deleted = deleted;
+			this.failures = failures;
+		}
+
+		public long getDeleted() {
+			return deleted;
+		}
+
+		public Map<Path, IOException> getFailures() {
+			return failures;
+		}
+
+		public boolean isComplete() {
+			return failures.isEmpty();
+		}
+	}
+
+	private final int parallelism;
+	private final int batchSize;
+
+	public GlusterTreeDeleter(int parallelism) {
+		this(parallelism, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param batchSize
+	 *            how many entries of a directory one task unlinks
+	 */
+	public GlusterTreeDeleter(int parallelism, int batchSize) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.batchSize = batchSize;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Deletes path and, when it is a directory, everything below it. Only a
+	 * missing or unreadable path is thrown; other failures are in the result.
+	 *
+	 * @param listener
+	 *            told about every removal and failure; may be null
+	 */
+	public Result delete(Path path, Listener listener) throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		Deletion deletion = new Deletion(listener);
+		if (attributes.isDirectory()) {
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			try {
+				pool.invoke(deletion.new DirectoryTask(path));
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			deletion.remove(path, false);
+		}
+		return new Result(deletion.deleted.get(),
+				Collections.unmodifiableMap(new HashMap<Path, IOException>(deletion.failures)));
+	}
+
+	/* the listing knows the type of Gluster entries, however stale the cache considers it */
+	private static boolean isDirectory(Path entry) throws IOException {
+		if (entry instanceof GlusterPath) {
+			GlusterPath path = (GlusterPath) entry;
+			if (GlusterListedType.DT_UNKNOWN != path.getListedType()) {
+				return GlusterListedType.DT_DIR == path.getListedType();
+			}
+		}
+		return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isDirectory();
+	}
+
+	private static void removeEntry(Path path, boolean directory) throws IOException {
+		if (path instanceof GlusterPath) {
+			GlusterFileSystem fileSystem = ((GlusterPath) path).getFileSystem();
+			String name = path.toString();
+			int ret = directory ? GLFS.glfs_rmdir(fileSystem.getVolptr(), name)
+					: GLFS.glfs_unlink(fileSystem.getVolptr(), name);
+			fileSystem.pathChanged(path, directory);
+			if (ret < 0) {
+				throw new IOException(name + ": " + UtilJNI.strerror());
+			}
+		} else {
+			Files.delete(path);
+		}
+	}
+
+	/* counters and failures of one delete */
+	private final class Deletion {
+		private final Listener listener;
+		private final AtomicLong deleted = new AtomicLong();
+		private final Map<Path, IOException> failures = new ConcurrentHashMap<>();
+
+		Deletion(Listener listener) {
+			this.listener = listener;
+		}
+
+		boolean remove(Path path, boolean directory) {
+			try {
+				removeEntry(path, directory);
+			} catch (IOException e) {
+				fail(path, e);
+				return false;
+			}
+			deleted.incrementAndGet();
+			if (null != listener) {
+				listener.deleted(path);
+			}
+			return true;
+		}
+
+		void fail(Path path, IOException e) {
+			failures.put(path, e);
+			if (null != listener) {
+				listener.failed(path, e);
+			}
+		}
+
+		/* each task answers whether everything it was given is gone */
+		private final class DirectoryTask extends RecursiveTask<Boolean> {
+			private static final long serialVersionUID = 1L;
+			private final Path dir;
+
+			DirectoryTask(Path dir) {
+				this.dir = dir;
+			}
+
+			@Override
+			protected Boolean compute() {
+				boolean complete = true;
+				List<ForkJoinTask<Boolean>> forked = new ArrayList<>();
+				List<Path> batch = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path entry : stream) {
+						boolean directory;
+						try {
+							directory = isDirectory(entry);
+						} catch (IOException e) {
+							fail(entry, e);
+							complete = false;
+							continue;
+						}
+						if (directory) {
+							forked.add(new DirectoryTask(entry).fork());
+						} else {
+							batch.add(entry);
+							if (batch.size() == batchSize) {
+								forked.add(new BatchTask(batch).fork());
+								batch = new ArrayList<>();
+							}
+						}
+					}
+				} catch (IOException e) {
+					fail(dir, e);
+					complete = false;
+				} catch (DirectoryIteratorException e) {
+					fail(dir, e.getCause());
+					complete = false;
+				}
+				complete &= new BatchTask(batch).compute();
+				for (ForkJoinTask<Boolean> task : forked) {
+					complete &= task.join();
+				}
+				return complete && remove(dir, true);
+			}
+		}
+
+		private final class BatchTask extends RecursiveTask<Boolean> {
+			private static final long serialVersionUID = 1L;
+			private final List<Path> files;
+
+			BatchTask(List<Path> files) {
+				this.files = files;
+			}
+
+			@Override
+			protected Boolean compute() {
+				boolean complete = true;
+				for (Path file : files) {
+					complete &= remove(file, false);
+				}
+				return complete;
+			}
+		}
+	}
+}
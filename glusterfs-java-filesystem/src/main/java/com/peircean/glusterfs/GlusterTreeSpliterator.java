@@ -0,0 +1,199 @@
+package com.peircean.glusterfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over a directory tree, the start path included, that splits by
+ * subdirectory: every spliterator keeps the directories it has found but not
+ * yet listed, and a split hands half of them to the new spliterator. A fresh
+ * spliterator has found nothing yet, so its first split lists the start
+ * directory and hands over part of the entries; the stream framework stops
+ * splitting at the first refusal. A parallel stream over it lists different
+ * parts of the tree at once. Symbolic links are not followed.
+ * <p>
+ * Directory streams still open when a stream is abandoned half way are
+ * closed by {@link #close()}, which {@link GlusterStreams} registers as the
+ * stream's close handler.
+ */
+final class GlusterTreeSpliterator implements Spliterator<Path>, Closeable {
+	private final int maxDepth;
+	private final Set<DirectoryStream<Path>> open;
+	private final Deque<Directory> pending = new ArrayDeque<>();
+	private Path start;
+	/* entries of the start directory, listed by the first split */
+	private Deque<Path> firstLevel;
+	private DirectoryStream<Path> currentStream;
+	private Iterator<Path> current;
+	private int currentDepth;
+
+	GlusterTreeSpliterator(Path start, int maxDepth) {
+		this.start = start;
+		this.maxDepth = maxDepth;
+		this.open = Collections.newSetFromMap(new ConcurrentHashMap<DirectoryStream<Path>, Boolean>());
+	}
+
+	private GlusterTreeSpliterator(GlusterTreeSpliterator parent) {
+		this.maxDepth = parent.maxDepth;
+		this.open = parent.open;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Path> action) {
+		if (null != start) {
+			Path path = start;
+			start = null;
+			if (null == firstLevel) {
+				found(path, 0);
+			}
+			action.accept(path);
+			return true;
+		}
+		if (null != firstLevel) {
+			Path entry = firstLevel.poll();
+			if (null != entry) {
+				found(entry, 1);
+				action.accept(entry);
+				return true;
+			}
+		}
+		while (true) {
+			if (null != current) {
+				try {
+					if (current.hasNext()) {
+						Path entry = current.next();
+						found(entry, currentDepth + 1);
+						action.accept(entry);
+						return true;
+					}
+				} catch (DirectoryIteratorException e) {
+					throw new UncheckedIOException(e.getCause());
+				}
+				closeCurrent();
+			}
+			Directory directory = pending.poll();
+			if (null == directory) {
+				return false;
+			}
+			openDirectory(directory);
+		}
+	}
+
+	@Override
+	public Spliterator<Path> trySplit() {
+		if (null != start && null == firstLevel) {
+			listFirstLevel();
+		}
+		/* whoever keeps the start path keeps something to do */
+		int entries = null == firstLevel ? 0 : firstLevel.size();
+		int handOver = (entries + (null == start ? 0 : 1)) / 2;
+		if (0 < handOver) {
+			GlusterTreeSpliterator split = new GlusterTreeSpliterator(this);
+			split.firstLevel = new ArrayDeque<>();
+			for (int i = handOver; i > 0; i--) {
+				split.firstLevel.addFirst(firstLevel.pollLast());
+			}
+			return split;
+		}
+		int size = pending.size();
+		if (0 == size || (1 == size && null == current && null == start && 0 == entries)) {
+			return null;
+		}
+		GlusterTreeSpliterator split = new GlusterTreeSpliterator(this);
+		for (int i = (size + 1) / 2; i > 0; i--) {
+			split.pending.add(pending.pollLast());
+		}
+		return split;
+	}
+
+	@Override
+	public long estimateSize() {
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public int characteristics() {
+		return DISTINCT | NONNULL;
+	}
+
+	@Override
+	public void close() {
+		for (DirectoryStream<Path> stream : open) {
+			try {
+				stream.close();
+			} catch (IOException e) {
+				/* nothing left to report it to */
+			}
+		}
+		open.clear();
+	}
+
+	private void found(Path path, int depth) {
+		if (depth < maxDepth && GlusterListedType.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+			pending.add(new Directory(path, depth));
+		}
+	}
+
+	private void listFirstLevel() {
+		Deque<Path> entries = new ArrayDeque<>();
+		if (0 < maxDepth && GlusterListedType.isDirectory(start, LinkOption.NOFOLLOW_LINKS)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(start)) {
+				for (Path entry : stream) {
+					entries.add(entry);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (DirectoryIteratorException e) {
+				throw new UncheckedIOException(e.getCause());
+			}
+		}
+		firstLevel = entries;
+	}
+
+	private void openDirectory(Directory directory) {
+		try {
+			currentStream = Files.newDirectoryStream(directory.path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		open.add(currentStream);
+		current = currentStream.iterator();
+		currentDepth = directory.depth;
+	}
+
+	private void closeCurrent() {
+		open.remove(currentStream);
+		try {
+			currentStream.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			currentStream = null;
+			current = null;
+		}
+	}
+
+	private static final class Directory {
+		private final Path path;
+		private final int depth;
+
+		Directory(Path path, int depth) {
+			this.path = path;
+			this.depth = depth;
+		}
+	}
+}
@@ -0,0 +1,273 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Walks a directory tree with several directories listed at once on a
+ * ForkJoinPool. Entries are handed to a {@link Visitor} on the calling thread,
+ * through a bounded queue: when the visitor falls behind, the listing threads
+ * wait, so memory stays bounded however large the tree. Symbolic links are
+ * reported, not followed. Entries removed while the walk runs, between the
+ * listing and the stat or before a subdirectory is listed, are skipped, as
+ * they are bound to be on a volume in use.
+ * <p>
+ * Entries come in no particular order; a directory is reported before its
+ * entries.
+ */
+public final class GlusterTreeWalker {
+	public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+
+	public interface Visitor {
+		/**
+		 * Called for every entry of the tree, the start directory included.
+		 * Throwing stops the walk.
+		 */
+		void visit(Path path, BasicFileAttributes attributes) throws IOException;
+	}
+
+	private static final Entry END = new Entry(null, null);
+	private static final long POLL_MILLIS = 10;
+
+	private final int parallelism;
+	private final int maxDepth;
+	private final PathMatcher prune;
+	private final int queueCapacity;
+
+	public GlusterTreeWalker(int parallelism) {
+		this(parallelism, Integer.MAX_VALUE, null, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * @param maxDepth
+	 *            how many levels below the start directory to visit; 0 visits
+	 *            the start directory only
+	 * @param prune
+	 *            entries it matches are neither visited nor descended into;
+	 *            may be null
+	 * @param queueCapacity
+	 *            how many entries may wait for the visitor
+	 */
+	public GlusterTreeWalker(int parallelism, int maxDepth, PathMatcher prune, int queueCapacity) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (maxDepth < 0) {
+			throw new IllegalArgumentException("maxDepth can't be negative");
+		}
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("queueCapacity must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.maxDepth = maxDepth;
+		this.prune = prune;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	public PathMatcher getPrune() {
+		return prune;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Walks the tree below start and returns the number of entries visited.
+	 * The first listing failure or visitor exception stops the walk and is
+	 * rethrown here.
+	 */
+	public long walk(Path start, Visitor visitor) throws IOException {
+		BasicFileAttributes startAttributes = Files.readAttributes(start, BasicFileAttributes.class,
+				LinkOption.NOFOLLOW_LINKS);
+		Walk walk = new Walk();
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			long visited = 1;
+			visitor.visit(start, startAttributes);
+			if (startAttributes.isDirectory() && maxDepth > 0) {
+				pool.execute(walk.root(start));
+				visited += walk.drain(visitor);
+			}
+			IOException failure = walk.failure.get();
+			if (null != failure) {
+				throw failure;
+			}
+			return visited;
+		} finally {
+			walk.stop();
+			pool.shutdownNow();
+		}
+	}
+
+	private static final class Entry {
+		private final Path path;
+		private final BasicFileAttributes attributes;
+
+		Entry(Path path, BasicFileAttributes attributes) {
+			this.path = path;
+			this.attributes = attributes;
+		}
+	}
+
+	/*
+	 * State of one walk: the queue between the listing tasks and the visitor,
+	 * the first failure, and the flags that tell the tasks to stop listing
+	 * and, once the visitor is gone, to stop waiting for room in the queue.
+	 */
+	private final class Walk {
+		private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(queueCapacity);
+		private final AtomicReference<IOException> failure = new AtomicReference<>();
+		private volatile boolean stopped;
+		private volatile boolean abandoned;
+
+		ForkJoinTask<?> root(final Path start) {
+			return new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute() {
+					try {
+						new DirectoryTask(start, 1).compute();
+					} catch (DirectoryIteratorException e) {
+						fail(e.getCause());
+					} catch (RuntimeException e) {
+						fail(new IOException("Tree walk failed", e));
+					} finally {
+						put(END);
+					}
+				}
+			};
+		}
+
+		long drain(Visitor visitor) throws IOException {
+			long visited = 0;
+			try {
+				while (true) {
+					Entry entry = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (END == entry) {
+						return visited;
+					}
+					if (null != entry) {
+						visitor.visit(entry.path, entry.attributes);
+						visited++;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while walking the tree");
+			}
+		}
+
+		void stop() {
+			stopped = true;
+			abandoned = true;
+		}
+
+		void fail(IOException e) {
+			failure.compareAndSet(null, e);
+			stopped = true;
+		}
+
+		/* blocks the listing thread while the queue is full, compensating the pool for it */
+		void put(final Entry entry) {
+			try {
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+					private boolean done;
+
+					@Override
+					public boolean block() throws InterruptedException {
+						done = queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS) || abandoned;
+						return done;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return done || (done = queue.offer(entry));
+					}
+				});
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(new InterruptedIOException("Interrupted while walking the tree"));
+			}
+		}
+
+		private final class DirectoryTask extends RecursiveAction {
+			private static final long serialVersionUID = 1L;
+			private final Path dir;
+			private final int depth;
+
+			DirectoryTask(Path dir, int depth) {
+				this.dir = dir;
+				this.depth = depth;
+			}
+
+			@Override
+			protected void compute() {
+				if (stopped) {
+					return;
+				}
+				List<DirectoryTask> subdirectories = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+					for (Path entry : stream) {
+						if (stopped) {
+							return;
+						}
+						if (null != prune && prune.matches(entry)) {
+							continue;
+						}
+						BasicFileAttributes attributes;
+						try {
+							attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+						} catch (NoSuchFileException e) {
+							continue;
+						}
+						put(new Entry(entry, attributes));
+						if (attributes.isDirectory() && depth < maxDepth) {
+							DirectoryTask task = new DirectoryTask(entry, depth + 1);
+							task.fork();
+							subdirectories.add(task);
+						}
+					}
+				} catch (NoSuchFileException e) {
+					/* the directory went after it was listed in its parent */
+				} catch (IOException e) {
+					fail(e);
+				} catch (DirectoryIteratorException e) {
+					if (!(e.getCause() instanceof NoSuchFileException)) {
+						fail(e.getCause());
+					}
+				} finally {
+					for (DirectoryTask task : subdirectories) {
+						task.join();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package com.peircean.glusterfs;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Source of the cache-invalidation notices a Gluster server sends to clients
+ * that asked for upcalls: a notice names the inode of a file or directory
+ * whose contents or attributes changed. A {@link GlusterWatchService} given a
+ * source lists a watched directory again only when a notice names it or one
+ * of its entries, instead of listing every watched directory on every poll.
+ * <p>
+ * libgfapi delivers these through glfs_h_poll_upcall; an implementation
+ * turns the objects it returns into inode numbers, the st_ino a stat of the
+ * same object reports.
+ */
+public interface GlusterUpcallSource extends Closeable {
+	/**
+	 * Waits up to timeoutMillis, or not at all when it is 0, for notices and
+	 * returns the inode numbers they name, or an empty array if none came. An
+	 * IOException means no more notices will come; the watch service then
+	 * falls back to polling.
+	 */
+	long[] await(long timeoutMillis) throws IOException, InterruptedException;
+}
@@ -3,12 +3,18 @@ package com.peircean.glusterfs;
 import java.nio.file.Path;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
 
 public class GlusterWatchEvent implements WatchEvent<Path> {
 	final private Path path;
 	private Kind<Path> kind = StandardWatchEventKinds.ENTRY_CREATE;
 	private int count = 0;
+	/* epoch nanoseconds, as precise as the file system keeps mtimes */
 	private long lastModified;
+	/* inode and size of the file at the last listing, to tell a replaced or rewritten file */
+	private long inode;
+	private long size;
 
 	public GlusterWatchEvent(Path path) {
 		super();
@@ -30,6 +36,14 @@ public class GlusterWatchEvent implements WatchEvent<Path> {
 		return path;
 	}
 
+	/**
+	 * The mtime of the file when the event was seen. A deletion, or a change
+	 * that left the mtime as it was, gets the time it was seen instead.
+	 */
+	public FileTime lastModifiedTime() {
+		return FileTime.from(lastModified, TimeUnit.NANOSECONDS);
+	}
+
 	Kind<Path> getKind() {
 		return kind;
 	}
@@ -54,6 +68,22 @@ public class GlusterWatchEvent implements WatchEvent<Path> {
 		this.lastModified = lastModified;
 	}
 
+	long getInode() {
+		return inode;
+	}
+
+	void setInode(long inode) {
+		this.inode = inode;
+	}
+
+	long getSize() {
+		return size;
+	}
+
+	void setSize(long size) {
+		this.size = size;
+	}
+
 	Path getPath() {
 		return path;
 	}
@@ -9,19 +9,39 @@ import java.nio.file.WatchEvent;
 import java.nio.file.WatchEvent.Kind;
 import java.nio.file.WatchKey;
 import java.nio.file.Watchable;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class GlusterWatchKey implements WatchKey {
-	private boolean valid = true;
-	private boolean ready = true;
+	/* stat carries nanoseconds, but a brick on a file system without them reports whole seconds */
+	static final long MTIME_GRANULARITY_MILLIS = 1000;
+	private volatile boolean valid = true;
+	private volatile boolean ready = true;
+	/* queued for a consumer, or handed to one and not yet reset */
+	private volatile boolean signalled = false;
 	Map<Path, GlusterWatchEvent> events = new HashMap<>();
 	final private GlusterPath path;
 	private WatchEvent.Kind[] kinds;
-	private long lastPolled = (new Date()).getTime();
+	/* event times are epoch nanoseconds, so writes within one second are told apart */
+	private long lastPolled = now();
+	/* whether the whole tree below the directory is watched, and what the last scan found in each directory */
+	private volatile boolean recursive;
+	private Map<Path, Directory> directories = new HashMap<>();
+	/* inode of the directory and of the files the last update listed, for upcall notices to find the key by */
+	private long directoryInode;
+	private Set<Long> inodes = new HashSet<>();
+	/* when the scanner lists the directory next, and how many listings in a row found nothing */
+	private long nextScan;
+	private int quietScans;
 
 	public GlusterWatchKey(GlusterPath path, Kind[] kinds) {
 		super();
@@ -39,49 +59,195 @@ public class GlusterWatchKey implements WatchKey {
 		return valid;
 	}
 
-	public boolean update() {
-		DirectoryStream<Path> paths;
-		try {
-			paths = Files.newDirectoryStream(path);
-		} catch (IOException e) {
-			return false;
-		}
-		List<Path> files = new LinkedList<>();
+	synchronized public boolean update() {
+		boolean modifications = watchesModifications();
+		Set<Path> files = new HashSet<>();
+		Set<Path> listed = new HashSet<>();
 		boolean newEvents = false;
-		for (Path f : paths) {
-			newEvents |= processExistingFile(files, f);
+		Deque<Path> pending = new ArrayDeque<>();
+		pending.add(path);
+		while (!pending.isEmpty()) {
+			Path dir = pending.poll();
+			Directory directory = directories.get(dir);
+			if (null == directory) {
+				directory = new Directory();
+				directories.put(dir, directory);
+			}
+			long mtime = -1;
+			if (!modifications) {
+				mtime = directoryMtime(dir);
+				if (directoryUnchanged(dir, mtime)) {
+					pending.addAll(directory.subdirectories);
+					continue;
+				}
+			}
+			long listingStarted = (new Date()).getTime();
+			DirectoryStream<Path> entries;
+			try {
+				entries = Files.newDirectoryStream(dir);
+			} catch (IOException e) {
+				if (path.equals(dir)) {
+					return false;
+				}
+				/* gone since its parent was listed; the next listing of the parent will tell */
+				continue;
+			}
+			Set<Long> inodes = new HashSet<>();
+			Set<Path> subdirectories = new HashSet<>();
+			try {
+				for (Path f : entries) {
+					if (recursive) {
+						BasicFileAttributes attributes = entryAttributes(f);
+						if (null != attributes && attributes.isDirectory()) {
+							subdirectories.add(f);
+							noteInode(inodes, attributes);
+						} else {
+							newEvents |= processExistingFile(files, inodes, f, attributes);
+						}
+					} else {
+						newEvents |= processExistingFile(files, inodes, f);
+					}
+				}
+			} finally {
+				try {
+					entries.close();
+				} catch (IOException e) {
+					/* the listing is complete, nothing is lost */
+				}
+			}
+			for (Path gone : directory.subdirectories) {
+				if (!subdirectories.contains(gone)) {
+					forget(gone);
+				}
+			}
+			directory.subdirectories = subdirectories;
+			directory.inodes = inodes;
+			directory.listedMtime = mtime;
+			directory.listedAt = listingStarted;
+			pending.addAll(subdirectories);
+			listed.add(dir);
 		}
+		/* files of a directory that was not listed are only gone if the directory is */
 		for (Path f : events.keySet()) {
-			newEvents |= checkDeleted(files, f);
+			if (listed.contains(f.getParent()) || !directories.containsKey(f.getParent())) {
+				newEvents |= checkDeleted(files, f);
+			}
+		}
+		Set<Long> seen = new HashSet<>();
+		for (Directory directory : directories.values()) {
+			seen.addAll(directory.inodes);
 		}
+		inodes = seen;
 		return newEvents;
 	}
 
-	boolean processExistingFile(List<Path> files, Path f) {
-		if (Files.isDirectory(f)) {
-			return false;
+	/*
+	 * Registering the path again. The snapshot of a tree watch and of a
+	 * single directory differ in what they hold and in how events name files,
+	 * so switching between the two drops the events not yet taken and takes a
+	 * fresh snapshot; changes from then on are reported as usual.
+	 */
+	synchronized void reregister(WatchEvent.Kind[] kinds, boolean recursive) {
+		this.kinds = kinds;
+		if (recursive == this.recursive) {
+			return;
 		}
-		files.add(f);
+		this.recursive = recursive;
+		events.clear();
+		directories.clear();
+		inodes = new HashSet<>();
+		lastPolled = now();
+		update();
+	}
 
-		long lastModified;
+	/* drops a directory that disappeared, and everything known below it */
+	private void forget(Path dir) {
+		Directory directory = directories.remove(dir);
+		if (null != directory) {
+			for (Path subdirectory : directory.subdirectories) {
+				forget(subdirectory);
+			}
+		}
+	}
+
+	/*
+	 * Creating, deleting or renaming an entry moves the directory's mtime, so
+	 * without ENTRY_MODIFY to report an unchanged mtime means nothing to list.
+	 * A change in the same mtime tick as the last listing would not show, so
+	 * the mtime is trusted only once that tick had passed when the listing
+	 * started. Changes deeper down do not move it, so the directories below
+	 * are still looked at.
+	 */
+	boolean directoryUnchanged(Path dir, long directoryMtime) {
+		Directory directory = directories.get(dir);
+		return null != directory && directoryMtime >= 0 && directoryMtime == directory.listedMtime
+				&& directoryMtime + MTIME_GRANULARITY_MILLIS <= directory.listedAt;
+	}
+
+	long directoryMtime(Path dir) {
 		try {
-			lastModified = Files.getLastModifiedTime(f).toMillis();
+			BasicFileAttributes attributes = Files.readAttributes(dir, BasicFileAttributes.class);
+			return null == attributes ? -1 : attributes.lastModifiedTime().toMillis();
 		} catch (IOException e) {
+			return -1;
+		}
+	}
+
+	boolean watchesModifications() {
+		if (null == kinds) {
+			return true;
+		}
+		for (WatchEvent.Kind k : kinds) {
+			if (null != k && StandardWatchEventKinds.ENTRY_MODIFY.name().equals(k.name())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	boolean processExistingFile(Set<Path> files, Set<Long> inodes, Path f) {
+		return processExistingFile(files, inodes, f, entryAttributes(f));
+	}
+
+	boolean processExistingFile(Set<Path> files, Set<Long> inodes, Path f, BasicFileAttributes attributes) {
+		if (null == attributes || attributes.isDirectory()) {
 			return false;
 		}
+		files.add(f);
 
+		long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+		long inode = noteInode(inodes, attributes);
 		GlusterWatchEvent event = events.get(f);
 		if (null != event) {
-			return checkModified(event, lastModified);
+			return checkModified(event, lastModified, inode, attributes.size());
 		} else {
-			return checkCreated(f, lastModified);
+			return checkCreated(f, lastModified, inode, attributes.size());
+		}
+	}
+
+	private static long noteInode(Set<Long> inodes, BasicFileAttributes attributes) {
+		long inode = attributes.fileKey() instanceof Long ? (Long) attributes.fileKey() : 0;
+		if (0 != inode) {
+			inodes.add(inode);
+		}
+		return inode;
+	}
+
+	static BasicFileAttributes entryAttributes(Path f) {
+		try {
+			if (f instanceof GlusterPath) {
+				return Files.readAttributes(f, GlusterFileAttributes.class);
+			}
+			return Files.readAttributes(f, BasicFileAttributes.class);
+		} catch (IOException e) {
+			return null;
 		}
 	}
 
-	boolean checkDeleted(List<Path> files, Path f) {
+	boolean checkDeleted(Set<Path> files, Path f) {
 		GlusterWatchEvent event = events.get(f);
 		if (!files.contains(f) && !StandardWatchEventKinds.ENTRY_DELETE.name().equals(event.kind().name())) {
-			event.setLastModified((new Date()).getTime());
+			event.setLastModified(unstamped(event));
 			event.setKind(StandardWatchEventKinds.ENTRY_DELETE);
 			event.setCount(event.getCount() + 1);
 			return true;
@@ -89,26 +255,56 @@ public class GlusterWatchKey implements WatchKey {
 		return false;
 	}
 
-	boolean checkCreated(Path f, long lastModified) {
-		GlusterWatchEvent event = new GlusterWatchEvent(f.getFileName());
+	/* events of a tree watch name the file relative to the watched directory, as on other platforms */
+	Path context(Path f) {
+		return recursive ? path.relativize(f) : f.getFileName();
+	}
+
+	boolean checkCreated(Path f, long lastModified, long inode, long size) {
+		GlusterWatchEvent event = new GlusterWatchEvent(context(f));
 		event.setLastModified(lastModified);
+		event.setInode(inode);
+		event.setSize(size);
 		events.put(f, event);
 		return (lastModified > lastPolled);
 	}
 
-	boolean checkModified(GlusterWatchEvent event, long lastModified) {
-		if (lastModified > event.getLastModified()) {
-			event.setLastModified(lastModified);
-			if (event.kind().name().equals(StandardWatchEventKinds.ENTRY_DELETE.name())) {
-				event.setKind(StandardWatchEventKinds.ENTRY_CREATE);
-				event.setCount(0);
-			} else {
-				event.setKind(StandardWatchEventKinds.ENTRY_MODIFY);
-				event.setCount(event.getCount() + 1);
-			}
-			return true;
+	/*
+	 * A file back after a delete, or under the same name with another inode,
+	 * is reported created; a later mtime or another size, modified.
+	 */
+	boolean checkModified(GlusterWatchEvent event, long lastModified, long inode, long size) {
+		boolean deleted = event.kind().name().equals(StandardWatchEventKinds.ENTRY_DELETE.name());
+		boolean replaced = 0 != inode && 0 != event.getInode() && inode != event.getInode();
+		if (!deleted && !replaced && lastModified <= event.getLastModified() && size == event.getSize()) {
+			return false;
 		}
-		return false;
+		event.setLastModified(lastModified > event.getLastModified() ? lastModified : unstamped(event));
+		event.setInode(inode);
+		event.setSize(size);
+		if (deleted || replaced) {
+			event.setKind(StandardWatchEventKinds.ENTRY_CREATE);
+			event.setCount(0);
+		} else {
+			event.setKind(StandardWatchEventKinds.ENTRY_MODIFY);
+			event.setCount(event.getCount() + 1);
+		}
+		return true;
+	}
+
+	/*
+	 * The time for a change no mtime shows: a delete, or a write that left
+	 * the mtime as it was. It goes just past the last poll, so the change is
+	 * reported, but is not read off this client's clock: lastPolled follows
+	 * the servers' mtimes, and a client clock ahead of theirs would hide the
+	 * changes after it.
+	 */
+	private long unstamped(GlusterWatchEvent event) {
+		return Math.max(event.getLastModified(), lastPolled + 1);
+	}
+
+	static long now() {
+		return TimeUnit.MILLISECONDS.toNanos((new Date()).getTime());
 	}
 
 	boolean kindsContains(WatchEvent.Kind kind) {
@@ -151,7 +347,11 @@ public class GlusterWatchKey implements WatchKey {
 
 	@Override
 	synchronized public boolean reset() {
-		if (!valid || ready) {
+		if (!valid) {
+			return false;
+		}
+		signalled = false;
+		if (ready) {
 			return false;
 		} else {
 			ready = true;
@@ -201,6 +401,61 @@ public class GlusterWatchKey implements WatchKey {
 		this.lastPolled = lastPolled;
 	}
 
+	boolean isSignalled() {
+		return signalled;
+	}
+
+	void setSignalled(boolean signalled) {
+		this.signalled = signalled;
+	}
+
+	long getNextScan() {
+		return nextScan;
+	}
+
+	void setNextScan(long nextScan) {
+		this.nextScan = nextScan;
+	}
+
+	int getQuietScans() {
+		return quietScans;
+	}
+
+	void setQuietScans(int quietScans) {
+		this.quietScans = quietScans;
+	}
+
+	void setListed(Path dir, long listedMtime, long listedAt) {
+		Directory directory = new Directory();
+		directory.listedMtime = listedMtime;
+		directory.listedAt = listedAt;
+		directories.put(dir, directory);
+	}
+
+	Set<Path> getDirectories() {
+		return directories.keySet();
+	}
+
+	boolean isRecursive() {
+		return recursive;
+	}
+
+	void setRecursive(boolean recursive) {
+		this.recursive = recursive;
+	}
+
+	long getDirectoryInode() {
+		return directoryInode;
+	}
+
+	void setDirectoryInode(long directoryInode) {
+		this.directoryInode = directoryInode;
+	}
+
+	Set<Long> getInodes() {
+		return inodes;
+	}
+
 	GlusterPath getPath() {
 		return path;
 	}
@@ -209,6 +464,14 @@ public class GlusterWatchKey implements WatchKey {
 		this.valid = valid;
 	}
 
+	/* what the last listing of one directory of the watched tree found */
+	private static final class Directory {
+		private long listedMtime = -1;
+		private long listedAt;
+		private Set<Long> inodes = new HashSet<>();
+		private Set<Path> subdirectories = new HashSet<>();
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
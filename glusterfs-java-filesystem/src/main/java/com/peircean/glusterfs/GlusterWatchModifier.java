@@ -0,0 +1,19 @@
+package com.peircean.glusterfs;
+
+import java.nio.file.WatchEvent;
+
+/**
+ * Gluster specific modifiers for registering a {@link GlusterPath} with a
+ * {@link GlusterWatchService}. The JDK's
+ * {@code com.sun.nio.file.ExtendedWatchEventModifier.FILE_TREE} is accepted
+ * as well, by name.
+ */
+public enum GlusterWatchModifier implements WatchEvent.Modifier {
+	/**
+	 * Watch the directory and every directory below it with one key,
+	 * directories created later included. Event contexts are paths relative
+	 * to the registered directory. Each scan lists only the directories whose
+	 * mtime moved, unless ENTRY_MODIFY is watched.
+	 */
+	FILE_TREE
+}
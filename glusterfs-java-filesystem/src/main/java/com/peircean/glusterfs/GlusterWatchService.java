@@ -2,60 +2,348 @@ package com.peircean.glusterfs;
 
 import java.io.IOException;
 import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.NoSuchElementException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Watches directories by listing them and comparing modification times. The
+ * listing happens on a scheduler thread of the service's own, never on the
+ * consumer's, so a slow volume or a large tree holds up no other service: it
+ * scans the keys every period, and a directory that keeps coming up unchanged
+ * is listed less and less often, down to once per maximum interval, until it
+ * changes again. Directories are listed without holding the service's lock,
+ * so registering and closing do not wait for a scan. Signalled keys go to a
+ * queue that {@link #take()} and {@link #poll(long, TimeUnit)} block on, so
+ * any number of consumers cost the volume nothing.
+ * <p>
+ * Given a {@link GlusterUpcallSource}, a directory is listed once when
+ * registered and then only when an upcall notice names it or one of the files
+ * it held at the last listing; if the source fails the service goes back to
+ * scanning.
+ */
 public class GlusterWatchService implements WatchService {
+	private static final Logger logger = Logger.getLogger(GlusterWatchService.class.getName());
+	/* put in the queue on close to wake up and turn away every consumer */
+	private static final GlusterWatchKey CLOSED = new GlusterWatchKey(null);
 	public static final int MILLIS_PER_SECOND = 1000;
 	public static final int MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
 	public static final int MILLIS_PER_HOUR = 60 * MILLIS_PER_MINUTE;
 	public static final int MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
 	public static long PERIOD = 100L;
+	public static final long DEFAULT_MAX_INTERVAL = 5 * MILLIS_PER_SECOND;
 
-	private Set<GlusterWatchKey> paths = new HashSet<>();
-	private Set<GlusterWatchKey> pendingPaths = new HashSet<>();
-	private boolean running = true;
+	private final long period;
+	private final long maxInterval;
+	/* keys hash on state that changes as they are used, so they are kept by identity */
+	private Set<GlusterWatchKey> paths = newKeySet();
+	private final BlockingQueue<GlusterWatchKey> signalled = new LinkedBlockingQueue<>();
+	private volatile boolean running = true;
+	private ScheduledExecutorService scheduler;
+	private ScheduledFuture<?> scanning;
+	private GlusterUpcallSource upcalls;
+	/* keys by the inodes upcall notices may name, and keys named but not yet listed again */
+	private Map<Long, Set<GlusterWatchKey>> keysByInode = new HashMap<>();
+	private Map<GlusterWatchKey, Set<Long>> indexed = new IdentityHashMap<>();
+	private Set<GlusterWatchKey> notified = newKeySet();
+
+	public GlusterWatchService() {
+		this(null);
+	}
+
+	/**
+	 * @param upcalls
+	 *            notices that tell which directories to list again; null to
+	 *            scan every directory
+	 */
+	public GlusterWatchService(GlusterUpcallSource upcalls) {
+		this(upcalls, PERIOD, DEFAULT_MAX_INTERVAL);
+	}
+
+	/**
+	 * @param period
+	 *            milliseconds between scans, and between listings of a
+	 *            directory that just changed
+	 * @param maxInterval
+	 *            milliseconds a quiet directory may go without being listed
+	 */
+	public GlusterWatchService(GlusterUpcallSource upcalls, long period, long maxInterval) {
+		if (period < 1) {
+			throw new IllegalArgumentException("period must be at least 1");
+		}
+		if (maxInterval < period) {
+			throw new IllegalArgumentException("maxInterval can't be shorter than period");
+		}
+		this.upcalls = upcalls;
+		this.period = period;
+		this.maxInterval = maxInterval;
+	}
 
 	public WatchKey registerPath(GlusterPath path, WatchEvent.Kind... kinds) {
-		if (!running) {
-			throw new ClosedWatchServiceException();
+		return registerPath(path, false, kinds);
+	}
+
+	/**
+	 * @param recursive
+	 *            whether to watch the whole tree below path with the key
+	 */
+	public WatchKey registerPath(GlusterPath path, boolean recursive, WatchEvent.Kind... kinds) {
+		GlusterWatchKey key = null;
+		boolean added = false;
+		GlusterUpcallSource source;
+		synchronized (this) {
+			if (!running) {
+				throw new ClosedWatchServiceException();
+			}
+			for (GlusterWatchKey k : paths) {
+				if (k.getPath().equals(path)) {
+					key = k;
+					break;
+				}
+			}
+			if (null == key) {
+				key = new GlusterWatchKey(path, kinds);
+				key.setRecursive(recursive);
+				paths.add(key);
+				added = true;
+				startScanning();
+			}
+			source = upcalls;
+		}
+		/* listing happens outside the service's lock, under the key's own */
+		if (!added) {
+			key.reregister(kinds, recursive);
 		}
-		for (GlusterWatchKey k : paths) {
-			if (k.getPath().equals(path)) {
-				k.setKinds(kinds);
-				return k;
+		if (null != source) {
+			if (added) {
+				key.setDirectoryInode(inodeOf(path));
+				key.update();
+			}
+			synchronized (this) {
+				index(key);
 			}
 		}
-		GlusterWatchKey key = new GlusterWatchKey(path, kinds);
-		paths.add(key);
 		return key;
 	}
 
+	private void startScanning() {
+		if (null == scanning) {
+			scheduler = GlusterThreads.newDaemonScheduler("gluster-watch");
+			scanning = scheduler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						scan();
+					} catch (RuntimeException e) {
+						/* an exception would end the schedule; the next scan may do better */
+						logger.log(Level.WARNING, "Scanning watched directories failed", e);
+					}
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * One round of the scheduler: lists the directories that are due, or those
+	 * upcall notices named, and queues the keys that got events. Only picking
+	 * the keys and recording the outcome happen under the service's lock.
+	 */
+	void scan() {
+		List<GlusterWatchKey> due;
+		boolean notices;
+		long now = System.nanoTime();
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			notices = null != upcalls && awaitUpcalls(0);
+			due = notices ? takeNotified() : takeDue(now);
+		}
+		boolean[] changed = new boolean[due.size()];
+		for (int i = 0; i < changed.length; i++) {
+			changed[i] = due.get(i).update();
+		}
+		synchronized (this) {
+			for (int i = 0; i < changed.length; i++) {
+				GlusterWatchKey k = due.get(i);
+				if (notices) {
+					index(k);
+				} else {
+					k.setQuietScans(changed[i] ? 0 : k.getQuietScans() + 1);
+					k.setNextScan(now + TimeUnit.MILLISECONDS.toNanos(scanInterval(k.getQuietScans())));
+				}
+				if (changed[i] && running) {
+					signal(k);
+				}
+			}
+		}
+	}
+
+	/* the keys due for a listing, dropping those cancelled */
+	private List<GlusterWatchKey> takeDue(long now) {
+		List<GlusterWatchKey> due = new ArrayList<>();
+		Iterator<GlusterWatchKey> iterator = paths.iterator();
+		while (iterator.hasNext()) {
+			GlusterWatchKey k = iterator.next();
+			if (!k.isValid()) {
+				iterator.remove();
+			} else if (k.isReady() && !k.isSignalled() && now - k.getNextScan() >= 0) {
+				due.add(k);
+			}
+		}
+		return due;
+	}
+
+	private static Set<GlusterWatchKey> newKeySet() {
+		return Collections.newSetFromMap(new IdentityHashMap<GlusterWatchKey, Boolean>());
+	}
+
+	/* the wait before listing again a directory found unchanged quietScans times in a row */
+	long scanInterval(int quietScans) {
+		long interval = period;
+		for (int i = 0; i < quietScans && interval < maxInterval; i++) {
+			interval *= 2;
+		}
+		return Math.min(interval, maxInterval);
+	}
+
+	void signal(GlusterWatchKey key) {
+		key.setSignalled(true);
+		signalled.add(key);
+	}
+
+	long inodeOf(GlusterPath path) {
+		try {
+			Object fileKey = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+			return fileKey instanceof Long ? (Long) fileKey : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	void index(GlusterWatchKey key) {
+		Set<Long> previous = indexed.remove(key);
+		if (null != previous) {
+			for (Long inode : previous) {
+				Set<GlusterWatchKey> keys = keysByInode.get(inode);
+				keys.remove(key);
+				if (keys.isEmpty()) {
+					keysByInode.remove(inode);
+				}
+			}
+		}
+		if (!key.isValid()) {
+			return;
+		}
+		Set<Long> inodes = new HashSet<>(key.getInodes());
+		if (0 != key.getDirectoryInode()) {
+			inodes.add(key.getDirectoryInode());
+		}
+		for (Long inode : inodes) {
+			Set<GlusterWatchKey> keys = keysByInode.get(inode);
+			if (null == keys) {
+				keys = newKeySet();
+				keysByInode.put(inode, keys);
+			}
+			keys.add(key);
+		}
+		indexed.put(key, inodes);
+	}
+
+	/*
+	 * Waits up to timeoutMillis for upcall notices and marks the keys they
+	 * name. Returns false, having switched to scanning, when the source fails.
+	 */
+	boolean awaitUpcalls(long timeoutMillis) {
+		long[] inodes;
+		try {
+			inodes = upcalls.await(timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return true;
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Upcall notices failed, scanning watched directories instead", e);
+			closeUpcalls();
+			return false;
+		}
+		for (long inode : inodes) {
+			Set<GlusterWatchKey> keys = keysByInode.get(inode);
+			if (null != keys) {
+				notified.addAll(keys);
+			}
+		}
+		return true;
+	}
+
+	/* the notified keys that are ready to be listed again; the others wait for their reset */
+	private List<GlusterWatchKey> takeNotified() {
+		List<GlusterWatchKey> due = new ArrayList<>();
+		Iterator<GlusterWatchKey> iterator = notified.iterator();
+		while (iterator.hasNext()) {
+			GlusterWatchKey k = iterator.next();
+			if (!k.isValid()) {
+				iterator.remove();
+				index(k);
+			} else if (k.isReady() && !k.isSignalled()) {
+				iterator.remove();
+				due.add(k);
+			}
+		}
+		return due;
+	}
+
+	private void closeUpcalls() {
+		try {
+			upcalls.close();
+		} catch (IOException e) {
+			logger.log(Level.FINE, "Closing upcall source failed", e);
+		}
+		upcalls = null;
+	}
+
 	@Override
-	public void close() throws IOException {
+	public synchronized void close() throws IOException {
 		if (running) {
 			running = false;
 			for (GlusterWatchKey k : paths) {
 				k.cancel();
 			}
+			if (null != scanning) {
+				scanning.cancel(false);
+				scheduler.shutdown();
+			}
+			if (null != upcalls) {
+				closeUpcalls();
+			}
+			signalled.add(CLOSED);
 		}
 	}
 
-	WatchKey popPending() {
-		Iterator<GlusterWatchKey> iterator = pendingPaths.iterator();
-		try {
-			GlusterWatchKey key = iterator.next();
-			iterator.remove();
-			return key;
-		} catch (NoSuchElementException e) {
-			return null;
+	/* hands out a key taken from the queue, putting the close marker back for the other consumers */
+	private WatchKey handOut(GlusterWatchKey key) {
+		if (CLOSED == key) {
+			signalled.add(CLOSED);
+			throw new ClosedWatchServiceException();
 		}
+		return key;
 	}
 
 	@Override
@@ -63,69 +351,33 @@ public class GlusterWatchService implements WatchService {
 		if (!running) {
 			throw new ClosedWatchServiceException();
 		}
-		WatchKey pending = popPending();
-		if (null != pending) {
-			return pending;
-		}
-		for (GlusterWatchKey k : paths) {
-			if (k.isValid() && k.isReady() && k.update()) {
-				pendingPaths.add(k);
-			}
-		}
-		return popPending();
+		GlusterWatchKey key = signalled.poll();
+		return null == key ? null : handOut(key);
 	}
 
 	@Override
-	public WatchKey poll(long timeout, TimeUnit unit) {
-		long timeoutMillis = timeoutToMillis(timeout, unit);
-		long loops = 0;
-		while (running) {
-			WatchKey key = poll();
-			if (key != null) {
-				return key;
-			}
-			if ((loops * PERIOD) > timeoutMillis) {
-				return null;
-			}
-			loops++;
-			try {
-				Thread.sleep(PERIOD);
-			} catch (InterruptedException e) {
-			}
+	public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+		if (!running) {
+			throw new ClosedWatchServiceException();
 		}
-		throw new ClosedWatchServiceException();
+		GlusterWatchKey key = signalled.poll(timeout, unit);
+		return null == key ? null : handOut(key);
 	}
 
 	@Override
-	public WatchKey take() {
-		while (running) {
-			WatchKey key = poll();
-			if (key != null) {
-				return key;
-			}
-			try {
-				Thread.sleep(PERIOD);
-			} catch (InterruptedException e) {
-			}
+	public WatchKey take() throws InterruptedException {
+		if (!running) {
+			throw new ClosedWatchServiceException();
 		}
-		throw new ClosedWatchServiceException();
+		return handOut(signalled.take());
 	}
 
-	long timeoutToMillis(long timeout, TimeUnit unit) {
-		switch (unit) {
-		case DAYS:
-			return (timeout * MILLIS_PER_DAY);
-		case HOURS:
-			return (timeout * MILLIS_PER_HOUR);
-		case MINUTES:
-			return (timeout * MILLIS_PER_MINUTE);
-		case SECONDS:
-			return (timeout * MILLIS_PER_SECOND);
-		case MILLISECONDS:
-			return timeout;
-		default: // MICROS & NANOS
-			return -1;
-		}
+	long getPeriod() {
+		return period;
+	}
+
+	long getMaxInterval() {
+		return maxInterval;
 	}
 
 	Set<GlusterWatchKey> getPaths() {
@@ -136,12 +388,28 @@ public class GlusterWatchService implements WatchService {
 		this.paths = paths;
 	}
 
-	Set<GlusterWatchKey> getPendingPaths() {
-		return pendingPaths;
+	BlockingQueue<GlusterWatchKey> getSignalled() {
+		return signalled;
+	}
+
+	ScheduledExecutorService getScheduler() {
+		return scheduler;
+	}
+
+	ScheduledFuture<?> getScanning() {
+		return scanning;
+	}
+
+	GlusterUpcallSource getUpcalls() {
+		return upcalls;
+	}
+
+	Map<Long, Set<GlusterWatchKey>> getKeysByInode() {
+		return keysByInode;
 	}
 
-	void setPendingPaths(Set<GlusterWatchKey> pendingPaths) {
-		this.pendingPaths = pendingPaths;
+	Set<GlusterWatchKey> getNotified() {
+		return notified;
 	}
 
 	boolean isRunning() {
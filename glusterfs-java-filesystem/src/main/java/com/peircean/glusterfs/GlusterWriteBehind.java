@@ -0,0 +1,125 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Write-behind buffer of one channel. Writes are copied into a buffer as long
+ * as each one starts where the previous one ended. A full buffer, or a write
+ * somewhere else in the file, hands the buffer to a background thread that
+ * writes it with pwrite while the channel carries on filling a second buffer.
+ * At most one flush is in flight, so buffers reach the volume in order.
+ * <p>
+ * A failed flush is kept and thrown from the next call that touches the
+ * buffer: write, drain (force, reads) or close.
+ */
+class GlusterWriteBehind {
+	static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	private static final ExecutorService executor = GlusterThreads.newDaemonPool("gluster-writebehind");
+
+	private final GlusterFileChannel channel;
+	private byte[] buffer;
+	private byte[] spare;
+	private int length;
+	private long offset = -1;
+	private Future<?> inFlight;
+	private volatile IOException failure;
+
+	GlusterWriteBehind(GlusterFileChannel channel, int bufferSize) {
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Write-behind buffer size must be positive: " + bufferSize);
+		}
+		this.channel = channel;
+		this.buffer = new byte[bufferSize];
+		this.spare = new byte[bufferSize];
+	}
+
+	/**
+	 * Accepts all remaining bytes of src for the given file position. Returns
+	 * the number of bytes accepted.
+	 */
+	int write(ByteBuffer src, long position) throws IOException {
+		checkFailure();
+		int total = src.remaining();
+		if (length > 0 && position != offset + length) {
+			flushAsync();
+		}
+		if (0 == length && total >= buffer.length) {
+			/* nothing to coalesce with, let the large write go through as is */
+			awaitInFlight();
+			checkFailure();
+			return channel.writeFrom(src, position);
+		}
+		long at = position;
+		while (src.hasRemaining()) {
+			if (0 == length) {
+				offset = at;
+			}
+			int n = Math.min(src.remaining(), buffer.length - length);
+			src.get(buffer, length, n);
+			length += n;
+			at += n;
+			if (length == buffer.length) {
+				flushAsync();
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Writes out everything buffered and waits for it to complete.
+	 */
+	void drain() throws IOException {
+		if (length > 0) {
+			flushAsync();
+		}
+		awaitInFlight();
+		checkFailure();
+	}
+
+	private void flushAsync() throws IOException {
+		awaitInFlight();
+		final byte[] data = buffer;
+		final int count = length;
+		final long at = offset;
+		buffer = spare;
+		spare = data;
+		length = 0;
+		offset = -1;
+		inFlight = executor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					channel.pwriteFully(data, count, at);
+				} catch (IOException e) {
+					failure = e;
+				}
+				return null;
+			}
+		});
+	}
+
+	private void awaitInFlight() throws IOException {
+		if (null == inFlight) {
+			return;
+		}
+		try {
+			GlusterFileCopier.await(inFlight);
+		} finally {
+			inFlight = null;
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if (null != e) {
+			failure = null;
+			throw new IOException("Background write failed", e);
+		}
+	}
+}
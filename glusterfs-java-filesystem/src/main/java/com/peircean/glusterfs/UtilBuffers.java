@@ -1,65 +1,70 @@
 package com.peircean.glusterfs;
 
-import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 
-@SuppressWarnings({ "rawtypes", "unchecked" })
 public class UtilBuffers {
 
-	private static final int TEMP_BUF_POOL_SIZE = 3;
-	// Per-thread soft cache of the last temporary direct buffer
-
-	private static ThreadLocal<SoftReference<ByteBuffer>>[] bufferPool;
-
-	static {
-		bufferPool = new ThreadLocal[TEMP_BUF_POOL_SIZE];
-		for (int i = 0; i < TEMP_BUF_POOL_SIZE; i++)
-			bufferPool[i] = new ThreadLocal<>();
+	static long remaining(ByteBuffer[] buffers, int offset, int length) {
+		long remaining = 0L;
+		for (int i = offset; i < offset + length; i++) {
+			remaining += buffers[i].remaining();
+		}
+		return remaining;
 	}
 
-	static ByteBuffer getTemporaryDirectBuffer(int size) {
-		ByteBuffer buf = null;
-		// Grab a buffer if available
-		for (int i = 0; i < TEMP_BUF_POOL_SIZE; i++) {
-			SoftReference<ByteBuffer> ref = bufferPool[i].get();
-			if ((ref != null) && ((buf = ref.get()) != null) && (buf.capacity() >= size)) {
-				buf.rewind();
-				buf.limit(size);
-				bufferPool[i].set(null);
-				return buf;
+	/**
+	 * Returns the only buffer in the range that has bytes remaining, or null if
+	 * there is more than one.
+	 */
+	static ByteBuffer singleWithRemaining(ByteBuffer[] buffers, int offset, int length) {
+		ByteBuffer single = null;
+		for (int i = offset; i < offset + length; i++) {
+			if (buffers[i].hasRemaining()) {
+				if (null != single) {
+					return null;
+				}
+				single = buffers[i];
 			}
 		}
-
-		// Make a new one
-		return ByteBuffer.allocate(size);
+		return single;
 	}
 
-	static void releaseTemporaryDirectBuffer(ByteBuffer buf) {
-		if (buf == null)
-			return;
-		// Put it in an empty slot if such exists
-		for (int i = 0; i < TEMP_BUF_POOL_SIZE; i++) {
-			SoftReference<ByteBuffer> ref = (bufferPool[i].get());
-			if ((ref == null) || (ref.get() == null)) {
-				bufferPool[i].set(new SoftReference<>(buf));
-				return;
-			}
+	/**
+	 * Copies up to max remaining bytes of the buffers, in order, to the start of
+	 * dst without moving their positions. Returns the number of bytes copied.
+	 */
+	static int gather(ByteBuffer[] buffers, int offset, int length, byte[] dst, int max) {
+		int copied = 0;
+		for (int i = offset; i < offset + length && copied < max; i++) {
+			ByteBuffer src = buffers[i].duplicate();
+			int n = Math.min(src.remaining(), max - copied);
+			src.get(dst, copied, n);
+			copied += n;
 		}
-		// Otherwise replace a smaller one in the cache if such exists
-		for (int i = 0; i < TEMP_BUF_POOL_SIZE; i++) {
-			SoftReference ref = (bufferPool[i].get());
-			ByteBuffer inCacheBuf = (ByteBuffer) ref.get();
-			if ((inCacheBuf == null) || (buf.capacity() > inCacheBuf.capacity())) {
-				bufferPool[i].set(new SoftReference<>(buf));
-				return;
-			}
+		return copied;
+	}
+
+	/**
+	 * Advances the positions of the buffers, in order, by count bytes in total.
+	 */
+	static void skip(ByteBuffer[] buffers, int offset, int length, long count) {
+		for (int i = offset; i < offset + length && count > 0; i++) {
+			int n = (int) Math.min(buffers[i].remaining(), count);
+			buffers[i].position(buffers[i].position() + n);
+			count -= n;
 		}
 	}
 
-	static void erase(ByteBuffer bb) {
-		byte[] inar = bb.array();
-		for (int i = 0; i < inar.length; i++) {
-			inar[i] = 0;
+	/**
+	 * Copies the first count bytes of src into the buffers, filling each one
+	 * before moving on to the next.
+	 */
+	static void scatter(byte[] src, int count, ByteBuffer[] buffers, int offset, int length) {
+		int copied = 0;
+		for (int i = offset; i < offset + length && copied < count; i++) {
+			int n = Math.min(buffers[i].remaining(), count - copied);
+			buffers[i].put(src, copied, n);
+			copied += n;
 		}
 	}
 
@@ -0,0 +1,188 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import junit.framework.TestCase;
+
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ GlusterFileChannel.class })
+public class GlusterAsynchronousFileChannelTest extends TestCase {
+	@Mock
+	private GlusterFileChannel mockChannel;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testReadFuture() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		doReturn(false).when(mockChannel).isClosed();
+		doReturn(7).when(mockChannel).read(buffer, 100L);
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(mockChannel, executor);
+
+		Future<Integer> future = channel.read(buffer, 100L);
+
+		assertEquals(Integer.valueOf(7), future.get(5, TimeUnit.SECONDS));
+		verify(mockChannel).read(buffer, 100L);
+		verify(mockChannel).disableReadAhead();
+	}
+
+	@Test
+	public void testWriteHandler() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		doReturn(false).when(mockChannel).isClosed();
+		doReturn(10).when(mockChannel).write(buffer, 0L);
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(mockChannel, executor);
+		Handler handler = new Handler();
+
+		channel.write(buffer, 0L, "attachment", handler);
+
+		assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(10), handler.result.get());
+		assertEquals("attachment", handler.attachment.get());
+		assertNull(handler.failure.get());
+	}
+
+	@Test
+	public void testReadHandler_whenReadFails() throws Exception {
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		doReturn(false).when(mockChannel).isClosed();
+		IOException failure = new IOException("read failed");
+		doThrow(failure).when(mockChannel).read(buffer, 0L);
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(mockChannel, executor);
+		Handler handler = new Handler();
+
+		channel.read(buffer, 0L, "attachment", handler);
+
+		assertTrue(handler.done.await(5, TimeUnit.SECONDS));
+		assertSame(failure, handler.failure.get());
+		assertNull(handler.result.get());
+	}
+
+	@Test
+	public void testReadFuture_whenClosed() throws Exception {
+		doReturn(true).when(mockChannel).isClosed();
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(mockChannel, executor);
+
+		Future<Integer> future = channel.read(ByteBuffer.allocate(10), 0L);
+
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected the read to fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ClosedChannelException);
+		}
+	}
+
+	@Test
+	public void testClose_whenReadInFlight() throws Exception {
+		ClosingChannel file = new ClosingChannel();
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(file, executor);
+
+		Future<Integer> future = channel.read(ByteBuffer.allocate(10), 0L);
+		assertTrue(file.reading.await(5, TimeUnit.SECONDS));
+		channel.close();
+
+		assertFalse(channel.isOpen());
+		assertFalse(file.closed.await(100, TimeUnit.MILLISECONDS));
+		file.finishRead.countDown();
+		assertEquals(Integer.valueOf(3), future.get(5, TimeUnit.SECONDS));
+		assertTrue(file.closed.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void testReadFuture_afterClose() throws Exception {
+		ClosingChannel file = new ClosingChannel();
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(file, executor);
+		channel.close();
+
+		try {
+			channel.read(ByteBuffer.allocate(10), 0L).get(5, TimeUnit.SECONDS);
+			fail("Expected the read to fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof ClosedChannelException);
+		}
+		assertTrue(file.closed.await(5, TimeUnit.SECONDS));
+		assertEquals(1, file.reading.getCount());
+	}
+
+	@Test
+	public void testRead_whenNegativePosition() {
+		GlusterAsynchronousFileChannel channel = new GlusterAsynchronousFileChannel(mockChannel, executor);
+		try {
+			channel.read(ByteBuffer.allocate(10), -1L);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	/* a file whose reads wait to be let through, and whose close is only recorded */
+	private static class ClosingChannel extends GlusterFileChannel {
+		final CountDownLatch reading = new CountDownLatch(1);
+		final CountDownLatch finishRead = new CountDownLatch(1);
+		final CountDownLatch closed = new CountDownLatch(1);
+
+		@Override
+		public int read(ByteBuffer dst, long position) throws IOException {
+			reading.countDown();
+			try {
+				finishRead.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			return 3;
+		}
+
+		@Override
+		protected void implCloseChannel() {
+			closed.countDown();
+		}
+	}
+
+	private static class Handler implements CompletionHandler<Integer, Object> {
+		final CountDownLatch done = new CountDownLatch(1);
+		final AtomicReference<Integer> result = new AtomicReference<>();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final AtomicReference<Object> attachment = new AtomicReference<>();
+
+		@Override
+		public void completed(Integer value, Object attachment) {
+			result.set(value);
+			this.attachment.set(attachment);
+			done.countDown();
+		}
+
+		@Override
+		public void failed(Throwable exc, Object attachment) {
+			failure.set(exc);
+			this.attachment.set(attachment);
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterAttributeCacheTest extends TestCase {
+	private final GlusterFileAttributes attributes = new GlusterFileAttributes(0100644, 1, 1, 10l, 1l, 1l, 1, 99l);
+	private final GlusterFileAttributes other = new GlusterFileAttributes(040755, 1, 1, 4096l, 1l, 1l, 1, 98l);
+
+	@Test
+	public void testGet_whenPut() {
+		GlusterAttributeCache cache = new GlusterAttributeCache(60000, 10);
+		cache.put("/a", true, attributes);
+
+		assertSame(attributes, cache.get("/a", true));
+		assertNull(cache.get("/a", false));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testGet_whenDisabled() {
+		GlusterAttributeCache cache = new GlusterAttributeCache();
+		cache.put("/a", true, attributes);
+
+		assertFalse(cache.isEnabled());
+		assertNull(cache.get("/a", true));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testGet_whenExpired() throws InterruptedException {
+		GlusterAttributeCache cache = new GlusterAttributeCache(1, 10);
+		cache.put("/a", true, attributes);
+		Thread.sleep(10);
+
+		assertNull(cache.get("/a", true));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testPut_evictsLeastRecentlyUsed() {
+		GlusterAttributeCache cache = new GlusterAttributeCache(60000, 2);
+		cache.put("/a", true, attributes);
+		cache.put("/b", true, attributes);
+		cache.get("/a", true);
+		cache.put("/c", true, attributes);
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get("/a", true));
+		assertNull(cache.get("/b", true));
+		assertNotNull(cache.get("/c", true));
+	}
+
+	@Test
+	public void testInvalidate() {
+		GlusterAttributeCache cache = new GlusterAttributeCache(60000, 10);
+		cache.put("/a", true, attributes);
+		cache.put("/a", false, other);
+		cache.put("/b", true, attributes);
+
+		cache.invalidate("/a");
+
+		assertNull(cache.get("/a", true));
+		assertNull(cache.get("/a", false));
+		assertSame(attributes, cache.get("/b", true));
+	}
+
+	@Test
+	public void testInvalidateTree() {
+		GlusterAttributeCache cache = new GlusterAttributeCache(60000, 10);
+		cache.put("/dir", true, other);
+		cache.put("/dir/a", true, attributes);
+		cache.put("/dir/sub/b", false, attributes);
+		cache.put("/dirt", true, attributes);
+
+		cache.invalidateTree("/dir");
+
+		assertEquals(1, cache.size());
+		assertNotNull(cache.get("/dirt", true));
+	}
+
+	@Test
+	public void testOf_whenDisabled() {
+		GlusterFileSystem fileSystem = mock(GlusterFileSystem.class);
+		when(fileSystem.getAttributeCache()).thenReturn(new GlusterAttributeCache());
+
+		assertNull(GlusterAttributeCache.of(fileSystem));
+	}
+
+	@Test
+	public void testConstructor_whenNegative() {
+		try {
+			new GlusterAttributeCache(-1, 10);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
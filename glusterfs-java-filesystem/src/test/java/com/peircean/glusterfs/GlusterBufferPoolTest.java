@@ -0,0 +1,125 @@
+package com.peircean.glusterfs;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterBufferPoolTest extends TestCase {
+
+	@Test
+	public void testSizeClass() {
+		assertEquals(0, GlusterBufferPool.sizeClass(1));
+		assertEquals(0, GlusterBufferPool.sizeClass(4096));
+		assertEquals(1, GlusterBufferPool.sizeClass(4097));
+		assertEquals(1, GlusterBufferPool.sizeClass(8192));
+		assertEquals(10, GlusterBufferPool.sizeClass(GlusterBufferPool.MAX_CLASS_SIZE));
+		assertEquals(-1, GlusterBufferPool.sizeClass(GlusterBufferPool.MAX_CLASS_SIZE + 1));
+	}
+
+	@Test
+	public void testAcquire() {
+		GlusterBufferPool pool = new GlusterBufferPool(1024 * 1024);
+
+		ByteBuffer buffer = pool.acquire(5000);
+
+		assertEquals(0, buffer.position());
+		assertEquals(5000, buffer.limit());
+		assertEquals(8192, buffer.capacity());
+		assertTrue(buffer.hasArray());
+		assertEquals(1, pool.getMisses());
+		assertEquals(1, pool.getOutstanding());
+	}
+
+	@Test
+	public void testReleaseThenAcquire_reusesBuffer() {
+		GlusterBufferPool pool = new GlusterBufferPool(1024 * 1024);
+		ByteBuffer buffer = pool.acquire(8000);
+		buffer.position(100);
+
+		pool.release(buffer);
+		assertEquals(8192, pool.getIdleBytes());
+		ByteBuffer again = pool.acquire(6000);
+
+		assertSame(buffer, again);
+		assertEquals(0, again.position());
+		assertEquals(6000, again.limit());
+		assertEquals(1, pool.getHits());
+		assertEquals(0, pool.getIdleBytes());
+		assertEquals(0.5, pool.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void testRelease_whenOverIdleLimit() {
+		GlusterBufferPool pool = new GlusterBufferPool(8192);
+		ByteBuffer first = pool.acquire(8192);
+		ByteBuffer second = pool.acquire(8192);
+
+		pool.release(first);
+		pool.release(second);
+
+		assertEquals(8192, pool.getIdleBytes());
+		assertEquals(0, pool.getOutstanding());
+	}
+
+	@Test
+	public void testRelease_whenTooLargeToPool() {
+		GlusterBufferPool pool = new GlusterBufferPool(Long.MAX_VALUE);
+		ByteBuffer huge = pool.acquire(GlusterBufferPool.MAX_CLASS_SIZE + 1);
+
+		pool.release(huge);
+
+		assertEquals(0, pool.getIdleBytes());
+	}
+
+	@Test
+	public void testSharedAcrossThreads() throws InterruptedException {
+		final GlusterBufferPool pool = new GlusterBufferPool(1024 * 1024);
+		final ByteBuffer[] buffers = new ByteBuffer[GlusterBufferPool.MAGAZINE_SIZE + 1];
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = pool.acquire(4096);
+		}
+		for (ByteBuffer buffer : buffers) {
+			pool.release(buffer);
+		}
+		/* the magazine is full, so the last buffer went to the shared list */
+		final ByteBuffer[] seen = new ByteBuffer[1];
+		final CountDownLatch done = new CountDownLatch(1);
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				seen[0] = pool.acquire(4096);
+				done.countDown();
+			}
+		}).start();
+		done.await();
+
+		assertSame(buffers[buffers.length - 1], seen[0]);
+	}
+
+	@Test
+	public void testAcquire_afterReleasingThreadEnded() throws InterruptedException {
+		final GlusterBufferPool pool = new GlusterBufferPool(8192);
+		final ByteBuffer[] released = new ByteBuffer[1];
+		Thread worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				released[0] = pool.acquire(8192);
+				pool.release(released[0]);
+			}
+		});
+		worker.start();
+		worker.join();
+
+		ByteBuffer buffer = pool.acquire(8192);
+
+		assertSame(released[0], buffer);
+		assertEquals(1, pool.getHits());
+		assertEquals(0, pool.getIdleBytes());
+		pool.release(buffer);
+		assertEquals(8192, pool.getIdleBytes());
+		assertSame(buffer, pool.acquire(8192));
+	}
+}
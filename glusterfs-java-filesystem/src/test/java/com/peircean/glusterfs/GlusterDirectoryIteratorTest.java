@@ -7,13 +7,18 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import static org.junit.Assert.*;
@@ -42,6 +47,8 @@ public class GlusterDirectoryIteratorTest {
     private GlusterDirectoryIterator iterator = new GlusterDirectoryIterator();
     private long dirHandle = 12345l;
 
+    private long resultPtr = 4444l;
+
     @Test
     public void testHasNext_whenFilter() throws Exception {
         iterator.setFilter(mockFilter);
@@ -86,124 +93,118 @@ public class GlusterDirectoryIteratorTest {
 
     @Test
     public void testAdvance_whenNormalEntry() throws Exception {
-        advanceHelper(0, true);
+        stubListing("foo");
+
+        iterator.advance();
+
+        assertEquals(fakeResultPath, iterator.getNextPath());
+        verify(mockPath).child("foo");
+        PowerMockito.verifyStatic();
+        GLFS.glfs_readdir_r(dirHandle, mockCurrentDirent, resultPtr);
     }
 
     @Test
-    public void testAdvance_skipSpecialEntryCurrent() throws Exception {
-        advanceHelper(1, true);
+    public void testAdvance_skipSpecialEntries() throws Exception {
+        stubListing(".", "..", "foo");
+
+        iterator.advance();
+
+        assertEquals(fakeResultPath, iterator.getNextPath());
+        verify(mockPath).child("foo");
+        verify(mockPath, times(1)).child(anyString());
+        PowerMockito.verifyStatic(times(3));
+        GLFS.glfs_readdir_r(dirHandle, mockCurrentDirent, resultPtr);
     }
 
     @Test
-    public void testAdvance_skipSpecialEntryParent() throws Exception {
-        advanceHelper(1, false);
+    public void testAdvance_whenNameStartsWithDots() throws Exception {
+        stubListing("...");
+
+        iterator.advance();
+
+        verify(mockPath).child("...");
     }
 
     @Test
-    public void testAdvance_skipSpecialEntryCurrentAndParent() throws Exception {
-        advanceHelper(2, true);
+    public void testAdvance_whenEndOfDirectory() throws Exception {
+        stubListing();
+
+        iterator.advance();
+
+        assertNull(iterator.getNextPath());
+        verify(mockPath, never()).child(anyString());
+    }
+
+    @Test
+    public void testAdvance_reusesEntries() throws Exception {
+        stubListing("foo", "bar");
+
+        iterator.advance();
+        iterator.advance();
+
+        verify(mockPath).child("foo");
+        verify(mockPath).child("bar");
+        PowerMockito.verifyNew(dirent.class, times(2)).withNoArguments();
+        PowerMockito.verifyStatic(never());
+        dirent.malloc(anyLong());
+        PowerMockito.verifyStatic(never());
+        dirent.free(anyLong());
+    }
+
+    @Test
+    public void testAdvance_whenTypeUnknown() throws Exception {
+        stubListing("foo");
+        doReturn(mockFileSystem).when(fakeResultPath).getFileSystem();
+
+        iterator.advance();
+
+        verify(mockFileSystem, never()).listed(any(GlusterPath.class), anyInt());
+    }
+
+    @Test
+    public void testAdvance_attachesType() throws Exception {
+        stubListing("foo");
+        mockCurrentDirent.d_type = GlusterListedType.DT_DIR;
+        doReturn(mockFileSystem).when(fakeResultPath).getFileSystem();
+
+        iterator.advance();
+
+        verify(mockFileSystem).listed(fakeResultPath, GlusterListedType.DT_DIR);
     }
 
     /*
-     * Type 0 = advancing on normal entry, so the boolean current value does not matter
-     * Type 1 = advancing on either special entry "." or "..", differentiated by boolean current
-     * Type 2 = advancing on both special entries "." and "..", so boolean current value does not matter
+     * Each readdir call writes the next name into the current dirent and, the
+     * way the native result slot does, a nonzero d_ino into the next dirent
+     * until the names run out.
      */
-    private void advanceHelper(int type, boolean current) throws Exception {
+    private void stubListing(String... names) throws Exception {
         doReturn(dirHandle).when(mockStream).getDirHandle();
+        doReturn(resultPtr).when(mockStream).getDirentBuffer();
+        doReturn(mockPath).when(mockStream).getDir();
         iterator.setStream(mockStream);
-        switch (type) {
-            case 1:
-                PowerMockito.whenNew(dirent.class).withNoArguments().thenReturn(mockCurrentDirent, mockNextDirent,
-                        mockCurrentDirent, mockNextDirent);
-                break;
-            case 2:
-                PowerMockito.whenNew(dirent.class).withNoArguments().thenReturn(mockCurrentDirent, mockNextDirent,
-                        mockCurrentDirent, mockNextDirent,
-                        mockCurrentDirent, mockNextDirent);
-                break;
-            default:
-                PowerMockito.whenNew(dirent.class).withNoArguments().thenReturn(mockCurrentDirent, mockNextDirent);
-                break;
-        }
-        long nextPtr = 4444l;
-        PowerMockito.mockStatic(dirent.class);
-        Mockito.when(dirent.malloc(dirent.SIZE_OF)).thenReturn(nextPtr);
-
-        PowerMockito.doNothing().when(dirent.class);
-        dirent.memmove(mockNextDirent, nextPtr, dirent.SIZE_OF);
-        PowerMockito.doNothing().when(dirent.class);
-        dirent.free(nextPtr);
 
+        mockCurrentDirent.d_name = new byte[256];
+        PowerMockito.whenNew(dirent.class).withNoArguments().thenReturn(mockCurrentDirent, mockNextDirent);
+        PowerMockito.mockStatic(dirent.class);
         PowerMockito.mockStatic(GLFS.class);
-        PowerMockito.when(GLFS.glfs_readdir_r(dirHandle, mockCurrentDirent, nextPtr)).thenReturn(0);
-
-        Mockito.doReturn(mockPath).when(mockStream).getDir();
-        String stringPath = "foo";
-        switch (type) {
-            case 1:
-                if (current) {
-                    when(mockCurrentDirent.getName()).thenReturn(".", stringPath);
-                } else {
-                    when(mockCurrentDirent.getName()).thenReturn("..", stringPath);
-                }
-                break;
-            case 2:
-                when(mockCurrentDirent.getName()).thenReturn(".", "..", stringPath);
-                break;
-            default:
-                when(mockCurrentDirent.getName()).thenReturn(stringPath);
-                break;
-        }
-        when(mockPath.resolve(any(String.class))).thenReturn(fakeResultPath);
-
-        iterator.advance();
-
-        assertEquals(fakeResultPath, iterator.getNextPath());
 
-        verify(mockPath).resolve(stringPath);
-        switch (type) {
-            case 1:
-                verify(mockCurrentDirent, times(2)).getName();
-                if (current) {
-                    verify(mockPath).resolve(".");
-                } else {
-                    verify(mockPath).resolve("..");
-                }
-                verify(mockStream, times(2)).getDir();
-                verify(mockStream, times(2)).getDirHandle();
-
-                PowerMockito.verifyNew(dirent.class, times(4)).withNoArguments();
-                PowerMockito.verifyStatic(times(2));
-                dirent.memmove(mockNextDirent, nextPtr, dirent.SIZE_OF);
-                PowerMockito.verifyStatic(times(2));
-                dirent.free(nextPtr);
-                break;
-            case 2:
-                verify(mockCurrentDirent, times(3)).getName();
-                verify(mockPath).resolve(".");
-                verify(mockPath).resolve("..");
-                verify(mockStream, times(3)).getDir();
-                verify(mockStream, times(3)).getDirHandle();
-
-                PowerMockito.verifyNew(dirent.class, times(6)).withNoArguments();
-                PowerMockito.verifyStatic(times(3));
-                dirent.memmove(mockNextDirent, nextPtr, dirent.SIZE_OF);
-                PowerMockito.verifyStatic(times(3));
-                dirent.free(nextPtr);
-                break;
-            default:
-                verify(mockCurrentDirent).getName();
-                verify(mockStream).getDir();
-                verify(mockStream).getDirHandle();
-
-                PowerMockito.verifyNew(dirent.class, times(2)).withNoArguments();
-                PowerMockito.verifyStatic();
-                dirent.memmove(mockNextDirent, nextPtr, dirent.SIZE_OF);
-                PowerMockito.verifyStatic();
-                dirent.free(nextPtr);
-                break;
-        }
+        final Iterator<String> remaining = Arrays.asList(names).iterator();
+        PowerMockito.when(GLFS.glfs_readdir_r(dirHandle, mockCurrentDirent, resultPtr))
+                .thenAnswer(new Answer<Integer>() {
+                    @Override
+                    public Integer answer(InvocationOnMock invocation) throws Throwable {
+                        Arrays.fill(mockCurrentDirent.d_name, (byte) 0);
+                        if (remaining.hasNext()) {
+                            byte[] name = remaining.next().getBytes(StandardCharsets.UTF_8);
+                            System.arraycopy(name, 0, mockCurrentDirent.d_name, 0, name.length);
+                            mockNextDirent.d_ino = 1;
+                        } else {
+                            mockNextDirent.d_ino = 0;
+                        }
+                        return 0;
+                    }
+                });
+        when(mockPath.child(anyString())).thenReturn(fakeResultPath);
     }
 
     @Test(expected = NoSuchElementException.class)
@@ -0,0 +1,68 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterDirectorySpliteratorTest extends TestCase {
+
+	@Test
+	public void testTryAdvance() {
+		Path first = mock(Path.class);
+		Path second = mock(Path.class);
+		GlusterDirectoryStream stream = mock(GlusterDirectoryStream.class);
+		doReturn(Arrays.asList(first, second)).doReturn(Collections.emptyList()).when(stream)
+				.listBatch(GlusterDirectorySpliterator.READ_BATCH);
+
+		assertEquals(Arrays.asList(first, second), drain(new GlusterDirectorySpliterator(stream)));
+	}
+
+	@Test
+	public void testTrySplit_handsOverGrowingBatches() {
+		Path first = mock(Path.class);
+		Path second = mock(Path.class);
+		GlusterDirectoryStream stream = mock(GlusterDirectoryStream.class);
+		doReturn(Arrays.asList(first)).when(stream).listBatch(GlusterDirectorySpliterator.INITIAL_SPLIT);
+		doReturn(Arrays.asList(second)).when(stream).listBatch(GlusterDirectorySpliterator.INITIAL_SPLIT * 2);
+		doReturn(Collections.emptyList()).when(stream).listBatch(GlusterDirectorySpliterator.INITIAL_SPLIT * 4);
+		GlusterDirectorySpliterator spliterator = new GlusterDirectorySpliterator(stream);
+
+		Spliterator<Path> split = spliterator.trySplit();
+		assertEquals(Arrays.asList(first), drain(split));
+		assertTrue(split.hasCharacteristics(Spliterator.DISTINCT | Spliterator.NONNULL));
+		assertEquals(Arrays.asList(second), drain(spliterator.trySplit()));
+		assertNull(spliterator.trySplit());
+		assertTrue(drain(spliterator).isEmpty());
+	}
+
+	@Test
+	public void testCharacteristics() {
+		GlusterDirectorySpliterator spliterator = new GlusterDirectorySpliterator(mock(GlusterDirectoryStream.class));
+
+		assertEquals(Spliterator.DISTINCT | Spliterator.NONNULL, spliterator.characteristics());
+		assertEquals(Long.MAX_VALUE, spliterator.estimateSize());
+	}
+
+	private static List<Path> drain(Spliterator<Path> spliterator) {
+		final List<Path> paths = new ArrayList<>();
+		while (spliterator.tryAdvance(new Consumer<Path>() {
+			@Override
+			public void accept(Path path) {
+				paths.add(path);
+			}
+		})) {
+		}
+		return paths;
+	}
+}
@@ -1,26 +1,31 @@
 package com.peircean.glusterfs;
 
 import com.peircean.libgfapi_jni.internal.GLFS;
+import com.peircean.libgfapi_jni.internal.structs.dirent;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.verify;
 import static org.powermock.api.mockito.PowerMockito.*;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({GlusterDirectoryStream.class, GLFS.class})
+@PrepareForTest({GlusterDirectoryStream.class, GLFS.class, dirent.class})
+@SuppressStaticInitializationFor("com.peircean.libgfapi_jni.internal.structs.dirent")
 public class GlusterDirectoryStreamTest {
     private long dirHandle = 12345l;
 
@@ -96,6 +101,49 @@ public class GlusterDirectoryStreamTest {
         verify(mockIterator).setFilter(mockFilter);
     }
 
+    @Test
+    public void testListBatch() throws Exception {
+        GlusterPath first = new GlusterPath(mockFileSystem, new String[] { "a" }, true);
+        GlusterPath second = new GlusterPath(mockFileSystem, new String[] { "b" }, true);
+        GlusterPath third = new GlusterPath(mockFileSystem, new String[] { "c" }, true);
+        stream.setFilter(mockFilter);
+        whenNew(GlusterDirectoryIterator.class).withNoArguments().thenReturn(mockIterator);
+        Mockito.when(mockIterator.hasNext()).thenReturn(true, true, true, false);
+        Mockito.when(mockIterator.next()).thenReturn(first, second, third);
+
+        assertEquals(Arrays.asList(first, second), stream.listBatch(2));
+        assertEquals(Arrays.<Path> asList(third), stream.listBatch(2));
+        assertTrue(stream.listBatch(2).isEmpty());
+
+        verifyNew(GlusterDirectoryIterator.class, Mockito.times(1)).withNoArguments();
+        verify(mockIterator).setStream(stream);
+        verify(mockIterator).setFilter(mockFilter);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testListBatch_whenIterating() {
+        stream.setIterator(mockIterator);
+        stream.listBatch(10);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIterator_whenListingInBatches() throws Exception {
+        whenNew(GlusterDirectoryIterator.class).withNoArguments().thenReturn(mockIterator);
+        stream.listBatch(10);
+        stream.iterator();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testListBatch_whenClosed() {
+        stream.setClosed(true);
+        stream.listBatch(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testListBatch_whenSizeNotPositive() {
+        stream.listBatch(0);
+    }
+
     @Test
     public void testClose_whenAlreadyClosed() throws IOException {
         stream.setDirHandle(dirHandle);
@@ -120,4 +168,32 @@ public class GlusterDirectoryStreamTest {
         GLFS.glfs_close(dirHandle);
     }
 
+    @Test
+    public void testGetDirentBuffer_allocatesOnce() {
+        long buffer = 4444l;
+        mockStatic(dirent.class);
+        Mockito.when(dirent.malloc(Mockito.anyLong())).thenReturn(buffer);
+
+        assertEquals(buffer, stream.getDirentBuffer());
+        assertEquals(buffer, stream.getDirentBuffer());
+
+        verifyStatic(Mockito.times(1));
+        dirent.malloc(Mockito.anyLong());
+    }
+
+    @Test
+    public void testClose_freesDirentBuffer() throws IOException {
+        long buffer = 4444l;
+        stream.setDirHandle(dirHandle);
+        mockStatic(GLFS.class);
+        mockStatic(dirent.class);
+        Mockito.when(dirent.malloc(Mockito.anyLong())).thenReturn(buffer);
+        stream.getDirentBuffer();
+
+        stream.close();
+
+        verifyStatic();
+        dirent.free(buffer);
+    }
+
 }
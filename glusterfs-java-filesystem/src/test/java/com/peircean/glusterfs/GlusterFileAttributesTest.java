@@ -9,6 +9,7 @@ import java.nio.file.attribute.FileTime;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class GlusterFileAttributesTest extends TestCase {
 
@@ -37,6 +38,18 @@ public class GlusterFileAttributesTest extends TestCase {
         assertEquals(FileTime.fromMillis(MTIME * 1000), attrib.lastModifiedTime());
     }
 
+    @Test
+    public void testModified_withNanoseconds() {
+        GlusterFileAttributes precise = new GlusterFileAttributes(MODE, UID, GID, SIZE, ATIME, 1L, CTIME, 2L,
+                MTIME, 123456789L, INODE);
+
+        assertEquals(TimeUnit.SECONDS.toNanos(MTIME) + 123456789L,
+                precise.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        assertEquals(TimeUnit.SECONDS.toNanos(ATIME) + 1L, precise.lastAccessTime().to(TimeUnit.NANOSECONDS));
+        assertEquals(TimeUnit.SECONDS.toNanos(CTIME) + 2L, precise.creationTime().to(TimeUnit.NANOSECONDS));
+        assertFalse(attrib.lastModifiedTime().equals(precise.lastModifiedTime()));
+    }
+
     @Test
     public void testCreated() {
         assertEquals(FileTime.fromMillis(CTIME * 1000), attrib.creationTime());
@@ -107,6 +120,9 @@ public class GlusterFileAttributesTest extends TestCase {
         stat.atime = ATIME;
         stat.mtime = MTIME;
         stat.ctime = CTIME;
+        stat.atime_nsec = 100l;
+        stat.mtime_nsec = 200l;
+        stat.ctime_nsec = 300l;
 
         GlusterFileAttributes attr = GlusterFileAttributes.fromStat(stat);
 
@@ -118,6 +134,9 @@ public class GlusterFileAttributesTest extends TestCase {
         assertEquals(stat.atime, attr.getAtime());
         assertEquals(stat.mtime, attr.getMtime());
         assertEquals(stat.ctime, attr.getCtime());
+        assertEquals(stat.atime_nsec, attr.getAtimeNsec());
+        assertEquals(stat.mtime_nsec, attr.getMtimeNsec());
+        assertEquals(stat.ctime_nsec, attr.getCtimeNsec());
 
     }
 }
@@ -36,7 +36,8 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
-import org.mockito.internal.verification.VerificationModeFactory;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -168,6 +169,70 @@ public class GlusterFileChannelTest extends TestCase {
 		assertEquals(GlusterOpenOption.O_RDWR | GlusterOpenOption.O_APPEND, result);
 	}
 
+	@Test
+	public void testParseOptions_ignoresGlusterChannelOptions() {
+		Set<OpenOption> options = new HashSet<>();
+		options.add(StandardOpenOption.WRITE);
+		options.add(GlusterChannelOption.WRITE_BEHIND);
+
+		int result = channel.parseOptions(options);
+
+		assertEquals(GlusterOpenOption.O_RDWR, result);
+	}
+
+	@Test
+	public void testWrite1Arg_withWriteBehind() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+		channel.setWriteBehind(new GlusterWriteBehind(channel, 1024));
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(6L), Mockito.eq(0L),
+				Mockito.eq(0))).thenReturn(6);
+		when(GLFS.glfs_fsync(fileptr)).thenReturn(0);
+
+		assertEquals(3, channel.write(ByteBuffer.wrap("abc".getBytes())));
+		assertEquals(3, channel.write(ByteBuffer.wrap("def".getBytes())));
+		verifyStatic(never());
+		GLFS.glfs_write(Mockito.anyLong(), Mockito.any(byte[].class), Mockito.anyLong(), Mockito.anyInt());
+
+		channel.force(true);
+
+		assertEquals(6L, channel.getPosition());
+		verifyStatic();
+		GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(6L), Mockito.eq(0L),
+				Mockito.eq(0));
+		verifyStatic();
+		GLFS.glfs_fsync(fileptr);
+	}
+
+	@Test
+	public void testImplCloseChannel_whenWriteBehindFails() throws IOException {
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+		channel.setWriteBehind(new GlusterWriteBehind(channel, 1024));
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(3L), Mockito.eq(0L),
+				Mockito.eq(0))).thenReturn(-1);
+		when(GLFS.glfs_close(fileptr)).thenReturn(0);
+
+		channel.write(ByteBuffer.wrap("abc".getBytes()));
+		try {
+			channel.implCloseChannel();
+			fail("Expected the write-behind failure");
+		} catch (IOException e) {
+			/* expected */
+		}
+
+		assertTrue(channel.isClosed());
+		verifyStatic();
+		GLFS.glfs_close(fileptr);
+	}
+
 	@Test
 	public void testRead1Arg() throws IOException {
 		doNothing().when(channel).guardClosed();
@@ -178,20 +243,17 @@ public class GlusterFileChannelTest extends TestCase {
 		long bufferLength = bytes.length;
 		long offset = 4;
 		channel.setPosition(offset);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
 
 		mockStatic(GLFS.class);
 		when(GLFS.glfs_read(fileptr, bytes, bufferLength, 0)).thenReturn(bufferLength);
 
-		doReturn(bytes).when(mockBuffer).array();
-		doReturn(mockBuffer).when(mockBuffer).position((int) bufferLength);
-
-		int read = channel.read(mockBuffer);
+		int read = channel.read(buffer);
 
 		assertEquals(bufferLength, read);
 
 		verify(channel).guardClosed();
-		verify(mockBuffer).array();
-		verify(mockBuffer).position((int) bufferLength);
+		assertEquals(bufferLength, buffer.position());
 		assertEquals(bufferLength + offset, channel.getPosition());
 
 		verifyStatic();
@@ -212,9 +274,56 @@ public class GlusterFileChannelTest extends TestCase {
 		mockStatic(GLFS.class);
 		when(GLFS.glfs_read(fileptr, bytes, bufferLength, 0)).thenReturn(-1L);
 
-		doReturn(bytes).when(mockBuffer).array();
+		channel.read(ByteBuffer.wrap(bytes));
+	}
+
+	@Test
+	public void testRead1Arg_whenNoRemaining() throws IOException {
+		doNothing().when(channel).guardClosed();
+		ByteBuffer buffer = ByteBuffer.allocate(4);
+		buffer.position(4);
 
-		channel.read(mockBuffer);
+		mockStatic(GLFS.class);
+
+		assertEquals(0, channel.read(buffer));
+		verifyStatic(never());
+		GLFS.glfs_read(Mockito.anyLong(), Mockito.any(byte[].class), Mockito.anyLong(), Mockito.anyInt());
+	}
+
+	@Test
+	public void testRead1Arg_whenBufferWindowNotAtArrayStart() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234l;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+
+		byte[] slab = new byte[16];
+		ByteBuffer buffer = ByteBuffer.wrap(slab, 4, 8).slice();
+		buffer.position(2);
+		buffer.limit(5);
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(3L), Mockito.eq(0)))
+				.thenAnswer(new Answer<Long>() {
+					@Override
+					public Long answer(InvocationOnMock invocation) throws Throwable {
+						byte[] bytes = (byte[]) invocation.getArguments()[1];
+						bytes[0] = 'x';
+						bytes[1] = 'y';
+						bytes[2] = 'z';
+						return 3L;
+					}
+				});
+
+		int read = channel.read(buffer);
+
+		assertEquals(3, read);
+		assertEquals(5, buffer.position());
+		assertEquals('x', slab[6]);
+		assertEquals('y', slab[7]);
+		assertEquals('z', slab[8]);
+		assertEquals(0, slab[9]);
+		assertEquals(3L, channel.getPosition());
 	}
 
 	@Test
@@ -309,28 +418,68 @@ public class GlusterFileChannelTest extends TestCase {
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
 
-		ByteBuffer[] buffers = new ByteBuffer[2];
-		buffers[0] = mockBuffer;
-		buffers[1] = mockBuffer;
+		byte[] bytes1 = new byte[5];
+		byte[] bytes2 = new byte[5];
+		ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.wrap(bytes1), ByteBuffer.wrap(bytes2) };
 		int offset = 0;
 		int length = 2;
 
-		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(10L), Mockito.eq(0)))
+				.thenAnswer(fill("helloworld"));
+
+		long read = channel.readHelper(buffers, offset, length);
+
+		assertEquals(10L, read);
+		assertEquals(5, buffers[0].position());
+		assertEquals(5, buffers[1].position());
+		assertEquals("hello", new String(bytes1));
+		assertEquals("world", new String(bytes2));
+		verifyStatic(times(1));
+		GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(10L), Mockito.eq(0));
+	}
+
+	@Test
+	public void testReadHelper_whenShortRead() throws IOException {
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
 
-		when(mockBuffer.remaining()).thenReturn(5, 0, 5, 0);
+		byte[] bytes1 = new byte[5];
+		byte[] bytes2 = new byte[5];
+		ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.wrap(bytes1), ByteBuffer.wrap(bytes2) };
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(10L), Mockito.eq(0)))
+				.thenAnswer(fill("hello!"));
+
+		long read = channel.readHelper(buffers, 0, 2);
+
+		assertEquals(6L, read);
+		assertEquals(5, buffers[0].position());
+		assertEquals(1, buffers[1].position());
+		assertEquals('!', bytes2[0]);
+		verifyStatic(times(1));
+		GLFS.glfs_read(Mockito.anyLong(), Mockito.any(byte[].class), Mockito.anyLong(), Mockito.anyInt());
+	}
+
+	@Test
+	public void testReadHelper_whenSingleBufferHasRoom() throws IOException {
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+
+		byte[] bytes = new byte[5];
+		ByteBuffer full = ByteBuffer.allocate(3);
+		full.position(3);
+		ByteBuffer[] buffers = new ByteBuffer[] { full, ByteBuffer.wrap(bytes) };
 
 		mockStatic(GLFS.class);
 		when(GLFS.glfs_read(fileptr, bytes, 5, 0)).thenReturn(5L);
-		doReturn(mockBuffer).when(mockBuffer).position(5);
 
-		channel.readHelper(buffers, offset, length);
+		long read = channel.readHelper(buffers, 0, 2);
 
-		verify(mockBuffer, times(2)).position(5);
-		verifyStatic(times(2));
+		assertEquals(5L, read);
+		verifyStatic();
 		GLFS.glfs_read(fileptr, bytes, 5, 0);
-		verify(mockBuffer, times(4)).remaining();
-		verify(mockBuffer, times(2)).array();
 	}
 
 	@Test(expected = IOException.class)
@@ -338,19 +487,13 @@ public class GlusterFileChannelTest extends TestCase {
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
 
-		ByteBuffer[] buffers = new ByteBuffer[2];
-		buffers[0] = mockBuffer;
-		buffers[1] = mockBuffer;
+		ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate(5), ByteBuffer.allocate(5) };
 		int offset = 0;
 		int length = 2;
 
-		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
-
-		when(mockBuffer.remaining()).thenReturn(5, 0, 5, 0);
-
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_read(fileptr, bytes, 5, 0)).thenReturn(-1L);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(10L), Mockito.eq(0)))
+				.thenReturn(-1L);
 
 		channel.readHelper(buffers, offset, length);
 	}
@@ -360,29 +503,31 @@ public class GlusterFileChannelTest extends TestCase {
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
 
-		ByteBuffer[] buffers = new ByteBuffer[2];
-		buffers[0] = mockBuffer;
-		buffers[1] = mockBuffer;
+		ByteBuffer[] buffers = new ByteBuffer[] { ByteBuffer.allocate(5), ByteBuffer.allocate(5) };
 		int offset = 0;
 		int length = 2;
 
-		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
-
-		when(mockBuffer.remaining()).thenReturn(5, 0, 5, 0);
-
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_read(fileptr, bytes, 5, 0)).thenReturn(0L);
-		doReturn(mockBuffer).when(mockBuffer).position(0);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(10L), Mockito.eq(0)))
+				.thenReturn(0L);
 
 		long ret = channel.readHelper(buffers, offset, length);
 
 		assertEquals(ret, -1);
-		verify(mockBuffer).position(0);
-		verifyStatic();
-		GLFS.glfs_read(fileptr, bytes, 5, 0);
-		verify(mockBuffer).remaining();
-		verify(mockBuffer).array();
+		assertEquals(0, buffers[0].position());
+		assertEquals(0, buffers[1].position());
+	}
+
+	private Answer<Long> fill(final String content) {
+		return new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				byte[] bytes = (byte[]) invocation.getArguments()[1];
+				byte[] src = content.getBytes();
+				System.arraycopy(src, 0, bytes, 0, src.length);
+				return (long) src.length;
+			}
+		};
 	}
 
 	@Test
@@ -399,33 +544,54 @@ public class GlusterFileChannelTest extends TestCase {
 		options.add(StandardOpenOption.READ);
 		channel.setOptions(options);
 
-		doReturn(10L).when(channel).size();
-
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(0);
 
 		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
-
-		long expectedRet = 7L;
-		when(GLFS.glfs_read(fileptr, bytes, bytes.length, 0)).thenReturn(expectedRet);
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
 
-		when(GLFS.glfs_lseek(fileptr, defaultPosition, 0)).thenReturn(0);
+		long expectedRet = 5L;
+		when(GLFS.glfs_pread(fileptr, bytes, bytes.length, position, 0)).thenReturn(expectedRet);
 
-		long ret = channel.read(mockBuffer, position);
+		long ret = channel.read(buffer, position);
 
 		assertEquals(ret, expectedRet);
+		assertEquals(expectedRet, buffer.position());
+		assertEquals(defaultPosition, channel.getPosition());
 		verifyStatic();
-		GLFS.glfs_lseek(fileptr, defaultPosition, 0);
-		verifyStatic();
-		GLFS.glfs_read(fileptr, bytes, bytes.length, 0);
-		verify(mockBuffer).array();
-		verifyStatic();
-		GLFS.glfs_lseek(fileptr, position, 0);
-		verify(channel).size();
+		GLFS.glfs_pread(fileptr, bytes, bytes.length, position, 0);
+		verifyStatic(never());
+		GLFS.glfs_lseek(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyInt());
+		verify(channel, never()).size();
 		verify(channel).guardClosed();
 	}
 
+	@Test
+	public void testRead2Arg_whenLimitBelowCapacity() throws IOException {
+		long position = 5L;
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+
+		doNothing().when(channel).guardClosed();
+
+		Set<StandardOpenOption> options = new HashSet<>();
+		options.add(StandardOpenOption.READ);
+		channel.setOptions(options);
+
+		mockStatic(GLFS.class);
+
+		byte[] bytes = new byte[10];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.limit(4);
+		when(GLFS.glfs_pread(fileptr, bytes, 4, position, 0)).thenReturn(4L);
+
+		long ret = channel.read(buffer, position);
+
+		assertEquals(4L, ret);
+		assertEquals(4, buffer.position());
+		verifyStatic();
+		GLFS.glfs_pread(fileptr, bytes, 4, position, 0);
+	}
+
 	@Test
 	public void testRead2ArgStringA() throws IOException, URISyntaxException {
 		doReturn(true).when(mockPath).isAbsolute();
@@ -442,33 +608,29 @@ public class GlusterFileChannelTest extends TestCase {
 		options.add(StandardOpenOption.CREATE_NEW);
 		channel.setOptions(options);
 
-		doReturn(8192l).when(channel).size();
+		doReturn(0L).when(channel).size();
+		doReturn(new GlusterTransferSizer(8192, 8192, false)).when(mockFileSystem).getTransferSizer();
 
 		mockStatic(GLFS.class);
 
-		doReturn(bytes).when(mockBuffer).array();
-
 		long expectedRet = bytes.length;
-		byte[] range1 = Arrays.copyOfRange(bytes, 0, 8192);
-		when(GLFS.glfs_write(fileptr, range1, 8192, 0)).thenReturn(8192);
 		int ramas1 = (int) (expectedRet - 8192);
-		byte[] range2 = Arrays.copyOfRange(bytes, 8192, ramas1 + 8192);
-		when(GLFS.glfs_write(fileptr, range2, ramas1, 0)).thenReturn(ramas1);
-		when(GLFS.glfs_lseek(fileptr, 0, 0)).thenReturn(0);
-		when(GLFS.glfs_lseek(fileptr, ramas1, 0)).thenReturn(ramas1);
+		when(GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(8192L), Mockito.eq(0L),
+				Mockito.eq(0))).thenReturn(8192);
+		when(GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq((long) ramas1),
+				Mockito.eq(8192L), Mockito.eq(0))).thenReturn(ramas1);
 		ReadableByteChannel readChannel = Channels.newChannel(new ByteArrayInputStream(bytes));
 		long ret = channel.transferFrom(readChannel, 0, expectedRet);
 		assertEquals(expectedRet, ret);
-		verifyStatic(VerificationModeFactory.times(3));
-		GLFS.glfs_lseek(fileptr, 0, 0);
-		verifyStatic(VerificationModeFactory.times(1));
-		GLFS.glfs_lseek(fileptr, 8192, 0);
-		System.out.println(
-				range1.length + "-" + Arrays.toString(range1) + "\n" + range2.length + "-" + Arrays.toString(range2));
-		// final range 2808
 		verifyStatic();
-		GLFS.glfs_write(fileptr, range2, range2.length, 0);
-		verify(channel, VerificationModeFactory.times(3)).size();
+		GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(8192L), Mockito.eq(0L),
+				Mockito.eq(0));
+		verifyStatic();
+		GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq((long) ramas1), Mockito.eq(8192L),
+				Mockito.eq(0));
+		verifyStatic(never());
+		GLFS.glfs_lseek(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyInt());
+		verify(channel).size();
 		verify(channel).guardClosed();
 	}
 
@@ -498,28 +660,7 @@ public class GlusterFileChannelTest extends TestCase {
 	}
 
 	@Test
-	public void testRead2Arg_whenPositionTooBig() throws IOException {
-		long position = 5L;
-
-		doNothing().when(channel).guardClosed();
-
-		Set<StandardOpenOption> options = new HashSet<>();
-		options.add(StandardOpenOption.READ);
-		channel.setOptions(options);
-
-		doReturn(4L).when(channel).size();
-
-		long expectedRet = -1L;
-
-		long ret = channel.read(mockBuffer, position);
-
-		assertEquals(ret, expectedRet);
-		verify(channel).size();
-		verify(channel).guardClosed();
-	}
-
-	@Test(expected = IOException.class)
-	public void testRead2Arg_whenFirstSeekFails() throws IOException {
+	public void testRead2Arg_whenEndOfFile() throws IOException {
 		long position = 5L;
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
@@ -530,16 +671,15 @@ public class GlusterFileChannelTest extends TestCase {
 		options.add(StandardOpenOption.READ);
 		channel.setOptions(options);
 
-		doReturn(10L).when(channel).size();
-
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(-1);
+		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		when(GLFS.glfs_pread(fileptr, bytes, bytes.length, position, 0)).thenReturn(0L);
 
-		channel.read(mockBuffer, position);
+		long ret = channel.read(buffer, position);
 
-		verifyStatic();
-		GLFS.glfs_lseek(fileptr, position, 0);
-		verify(channel).size();
+		assertEquals(-1L, ret);
+		assertEquals(0, buffer.position());
 		verify(channel).guardClosed();
 	}
 
@@ -547,9 +687,7 @@ public class GlusterFileChannelTest extends TestCase {
 	public void testRead2Arg_whenReadFails() throws IOException {
 		long position = 5L;
 		long fileptr = 1234L;
-		long defaultPosition = 0L;
 		channel.setFileptr(fileptr);
-		channel.setPosition(defaultPosition);
 
 		doNothing().when(channel).guardClosed();
 
@@ -557,66 +695,69 @@ public class GlusterFileChannelTest extends TestCase {
 		options.add(StandardOpenOption.READ);
 		channel.setOptions(options);
 
-		doReturn(10L).when(channel).size();
-
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(0);
 
 		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
-
-		long expectedRet = -1;
-		when(GLFS.glfs_read(fileptr, bytes, bytes.length, 0)).thenReturn(expectedRet);
-
-		channel.read(mockBuffer, position);
+		when(GLFS.glfs_pread(fileptr, bytes, bytes.length, position, 0)).thenReturn(-1L);
 
-		verifyStatic();
-		GLFS.glfs_read(fileptr, bytes, bytes.length, 0);
-		verify(mockBuffer).array();
-		verifyStatic();
-		GLFS.glfs_lseek(fileptr, position, 0);
-		verify(channel).size();
-		verify(channel).guardClosed();
+		channel.read(ByteBuffer.wrap(bytes), position);
 	}
 
-	@Test(expected = IOException.class)
-	public void testRead2Arg_whenSecondSeekFails() throws IOException {
-		long position = 5L;
-		long fileptr = 1234L;
-		long defaultPosition = 0L;
+	@Test
+	public void testRead1Arg_whenDirectBuffer() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234l;
 		channel.setFileptr(fileptr);
-		channel.setPosition(defaultPosition);
+		channel.setPosition(0L);
 
-		doNothing().when(channel).guardClosed();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(8);
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_read(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(8L), Mockito.eq(0)))
+				.thenAnswer(new Answer<Long>() {
+					@Override
+					public Long answer(InvocationOnMock invocation) throws Throwable {
+						byte[] bytes = (byte[]) invocation.getArguments()[1];
+						bytes[0] = 'a';
+						bytes[1] = 'b';
+						bytes[2] = 'c';
+						return 3L;
+					}
+				});
+
+		int read = channel.read(buffer);
+
+		assertEquals(3, read);
+		assertEquals(3, buffer.position());
+		assertEquals('a', buffer.get(0));
+		assertEquals('c', buffer.get(2));
+		assertEquals(3L, channel.getPosition());
+	}
 
+	@Test
+	public void testWrite2Arg_whenDirectBuffer() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234l;
+		channel.setFileptr(fileptr);
 		Set<StandardOpenOption> options = new HashSet<>();
-		options.add(StandardOpenOption.READ);
+		options.add(StandardOpenOption.WRITE);
 		channel.setOptions(options);
 
-		doReturn(10L).when(channel).size();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(4);
+		buffer.put(new byte[] { 'a', 'b', 'c', 'd' });
+		buffer.flip();
+		long position = 7L;
 
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(0);
-
-		byte[] bytes = new byte[] { 'h', 'e', 'l', 'l', 'o' };
-		doReturn(bytes).when(mockBuffer).array();
-
-		long expectedRet = 7L;
-		when(GLFS.glfs_read(fileptr, bytes, bytes.length, 0)).thenReturn(expectedRet);
+		when(GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(4L), Mockito.eq(position),
+				Mockito.eq(0))).thenReturn(4);
 
-		when(GLFS.glfs_lseek(fileptr, defaultPosition, 0)).thenReturn(-1);
-
-		channel.read(mockBuffer, position);
+		int written = channel.write(buffer, position);
 
+		assertEquals(4, written);
+		assertFalse(buffer.hasRemaining());
 		verifyStatic();
-		GLFS.glfs_lseek(fileptr, defaultPosition, 0);
-		verifyStatic();
-		GLFS.glfs_read(fileptr, bytes, bytes.length, 0);
-		verify(mockBuffer).array();
-		verifyStatic();
-		GLFS.glfs_lseek(fileptr, position, 0);
-		verify(channel).size();
-		verify(channel).guardClosed();
+		GLFS.glfs_pwrite(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(4L), Mockito.eq(position),
+				Mockito.eq(0));
 	}
 
 	@Test
@@ -624,62 +765,158 @@ public class GlusterFileChannelTest extends TestCase {
 		doNothing().when(channel).guardClosed();
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
 
 		byte[] bytes = new byte[] { 'a', 'b' };
 		int bufferLength = bytes.length;
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
 
 		mockStatic(GLFS.class);
 		when(GLFS.glfs_write(fileptr, bytes, bufferLength, 0)).thenReturn(bufferLength);
 
-		doReturn(bytes).when(mockBuffer).array();
-		doReturn(null).when(mockBuffer).position(bufferLength);
-		doReturn(true).when(mockBuffer).hasArray();
-		doReturn(bytes.length).when(mockBuffer).remaining();
-
-		int written = channel.write(mockBuffer);
+		int written = channel.write(buffer);
 
 		assertEquals(bufferLength, written);
+		assertEquals(bufferLength, buffer.position());
+		assertEquals(bufferLength, channel.getPosition());
 
 		verify(channel).guardClosed();
-		verify(mockBuffer).array();
-		verify(mockBuffer).position(bufferLength);
 
 		verifyStatic();
 		GLFS.glfs_write(fileptr, bytes, bufferLength, 0);
 	}
 
+	@Test
+	public void testRead1Arg_withReadAhead_thenWriteResyncsOffset() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+		channel.setReadAhead(GlusterReadAhead.create(channel, new GlusterReadAheadPolicy(64, 1024)));
+
+		byte[] bytes = new byte[] { 'a', 'b', 'c' };
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_pread(fileptr, bytes, 3, 0, 0)).thenReturn(3L);
+		when(GLFS.glfs_lseek(fileptr, 3, 0)).thenReturn(3);
+		when(GLFS.glfs_write(fileptr, bytes, 3, 0)).thenReturn(3);
+
+		assertEquals(3, channel.read(buffer));
+		buffer.flip();
+		assertEquals(3, channel.write(buffer));
+
+		assertEquals(6L, channel.getPosition());
+		verifyStatic(never());
+		GLFS.glfs_read(Mockito.anyLong(), Mockito.any(byte[].class), Mockito.anyLong(), Mockito.anyInt());
+		verifyStatic();
+		GLFS.glfs_lseek(fileptr, 3, 0);
+		verifyStatic();
+		GLFS.glfs_write(fileptr, bytes, 3, 0);
+	}
+
+	@Test
+	public void testWrite1Arg_whenBufferWindowNotAtArrayStart() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+
+		byte[] slab = new byte[] { 'a', 'b', 'c', 'd', 'e', 'f' };
+		ByteBuffer buffer = ByteBuffer.wrap(slab);
+		buffer.position(2);
+		buffer.limit(5);
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_write(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(3L), Mockito.eq(0)))
+				.thenAnswer(new Answer<Integer>() {
+					@Override
+					public Integer answer(InvocationOnMock invocation) throws Throwable {
+						byte[] bytes = (byte[]) invocation.getArguments()[1];
+						assertEquals('c', bytes[0]);
+						assertEquals('e', bytes[2]);
+						return 3;
+					}
+				});
+
+		int written = channel.write(buffer);
+
+		assertEquals(3, written);
+		assertEquals(5, buffer.position());
+		assertEquals(3L, channel.getPosition());
+	}
+
 	@Test
 	public void testWrite3Arg() throws IOException {
 		doNothing().when(channel).guardClosed();
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
 		Set<? extends OpenOption> mockOptions = Mockito.mock(Set.class);
 		channel.setOptions(mockOptions);
 		doReturn(true).when(mockOptions).contains(StandardOpenOption.WRITE);
 
-		byte[] bytes1 = new byte[10];
-		byte[] bytes2 = new byte[10];
-		ByteBuffer buffer1 = ByteBuffer.wrap(bytes1);
-		ByteBuffer buffer2 = ByteBuffer.wrap(bytes2);
-		ByteBuffer[] buffers = new ByteBuffer[] { buffer1, buffer2 };
-		int length = 2;
+		ByteBuffer header = ByteBuffer.wrap("head".getBytes());
+		ByteBuffer payload = ByteBuffer.wrap("payload".getBytes());
+		ByteBuffer trailer = ByteBuffer.wrap("tail".getBytes());
+		ByteBuffer[] buffers = new ByteBuffer[] { header, payload, trailer };
+		int length = 3;
 		int offset = 0;
 
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_write(fileptr, bytes1, 10, 0)).thenReturn(10);
-		when(GLFS.glfs_write(fileptr, bytes2, 10, 0)).thenReturn(10);
+		final StringBuilder sent = new StringBuilder();
+		when(GLFS.glfs_write(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(15L), Mockito.eq(0)))
+				.thenAnswer(new Answer<Integer>() {
+					@Override
+					public Integer answer(InvocationOnMock invocation) throws Throwable {
+						byte[] bytes = (byte[]) invocation.getArguments()[1];
+						sent.append(new String(bytes, 0, 15));
+						return 15;
+					}
+				});
 
 		long ret = channel.write(buffers, offset, length);
 
-		assertEquals(ret, 20);
+		assertEquals(15, ret);
+		assertEquals("headpayloadtail", sent.toString());
+		assertFalse(header.hasRemaining());
+		assertFalse(payload.hasRemaining());
+		assertFalse(trailer.hasRemaining());
+		assertEquals(15L, channel.getPosition());
 
-		verifyStatic(times(2));
-		GLFS.glfs_write(fileptr, bytes1, 10, 0);
+		verifyStatic(times(1));
+		GLFS.glfs_write(Mockito.anyLong(), Mockito.any(byte[].class), Mockito.anyLong(), Mockito.anyInt());
 
 		verify(mockOptions).contains(StandardOpenOption.WRITE);
 		verify(channel).guardClosed();
 	}
 
+	@Test
+	public void testWrite3Arg_whenShortWrite() throws IOException {
+		doNothing().when(channel).guardClosed();
+		long fileptr = 1234L;
+		channel.setFileptr(fileptr);
+		channel.setPosition(0L);
+		Set<StandardOpenOption> options = new HashSet<>();
+		options.add(StandardOpenOption.WRITE);
+		channel.setOptions(options);
+
+		ByteBuffer buffer1 = ByteBuffer.allocate(10);
+		ByteBuffer buffer2 = ByteBuffer.allocate(10);
+		ByteBuffer[] buffers = new ByteBuffer[] { buffer1, buffer2 };
+
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_write(Mockito.eq(fileptr), Mockito.any(byte[].class), Mockito.eq(20L), Mockito.eq(0)))
+				.thenReturn(12);
+
+		long ret = channel.write(buffers, 0, 2);
+
+		assertEquals(12, ret);
+		assertEquals(10, buffer1.position());
+		assertEquals(2, buffer2.position());
+		assertEquals(12L, channel.getPosition());
+	}
+
 	@Test(expected = NonWritableChannelException.class)
 	public void testWrite3Arg_whenChannelNotOpenedForWrite() throws IOException {
 		doNothing().when(channel).guardClosed();
@@ -760,15 +997,15 @@ public class GlusterFileChannelTest extends TestCase {
 
 	@Test
 	public void testWrite2Arg_positionLessThanSize() throws IOException {
-		testWrite2Arg_helper(false);
+		testWrite2Arg_helper(2L);
 	}
 
 	@Test
 	public void testWrite2Arg_positionGreaterThanSize() throws IOException {
-		testWrite2Arg_helper(true);
+		testWrite2Arg_helper(30L);
 	}
 
-	private void testWrite2Arg_helper(boolean testingPositionSize) throws IOException {
+	private void testWrite2Arg_helper(long position) throws IOException {
 		doNothing().when(channel).guardClosed();
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
@@ -776,92 +1013,43 @@ public class GlusterFileChannelTest extends TestCase {
 		channel.setOptions(mockOptions);
 		doReturn(true).when(mockOptions).contains(StandardOpenOption.WRITE);
 		channel.setPosition(0L);
-		doReturn(3L).when(channel).size();
 
 		byte[] bytes = new byte[10];
 		ByteBuffer buffer = ByteBuffer.wrap(bytes);
-		String stringForArr = Arrays.toString(bytes);
-		long position = 2L;
-
-		if (testingPositionSize) {
-			position = 3L;
-			mockStatic(Arrays.class);
-			when(Arrays.copyOf(bytes, bytes.length)).thenReturn(bytes);
-			when(Arrays.copyOfRange(bytes, 0, buffer.remaining())).thenReturn(bytes);
-			when(Arrays.toString(bytes)).thenReturn(stringForArr);
-			mockStatic(ByteBuffer.class);
-			when(ByteBuffer.wrap(bytes)).thenReturn(buffer);
-		}
 
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_write(fileptr, bytes, 10, 0)).thenReturn(10);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(0);
-		when(GLFS.glfs_lseek(fileptr, 0L, 0)).thenReturn(0);
+		when(GLFS.glfs_pwrite(fileptr, bytes, 10, position, 0)).thenReturn(10);
 
 		int ret = channel.write(buffer, position);
 
 		assertEquals(ret, 10);
+		assertEquals(0L, channel.getPosition());
 
 		verifyStatic();
-		GLFS.glfs_lseek(fileptr, 0L, 0);
-		verifyStatic();
-		GLFS.glfs_lseek(fileptr, position, 0);
-		verifyStatic();
-		GLFS.glfs_write(fileptr, bytes, 10, 0);
-
-		if (testingPositionSize) {
-			verifyStatic();
-			ByteBuffer.wrap(bytes);
-			verifyStatic();
-			Arrays.copyOf(bytes, bytes.length);
-		}
+		GLFS.glfs_pwrite(fileptr, bytes, 10, position, 0);
+		verifyStatic(never());
+		GLFS.glfs_lseek(Mockito.anyLong(), Mockito.anyLong(), Mockito.anyInt());
 
-		verify(channel, times(testingPositionSize ? 1 : 1)).size();
+		verify(channel, never()).size();
 		verify(mockOptions).contains(StandardOpenOption.WRITE);
 		verify(channel).guardClosed();
 	}
 
 	@Test(expected = IOException.class)
-	public void testWrite2Arg_firstSeekFails() throws IOException {
-		doNothing().when(channel).guardClosed();
-		long fileptr = 1234L;
-		channel.setFileptr(fileptr);
-		Set<? extends OpenOption> mockOptions = Mockito.mock(Set.class);
-		channel.setOptions(mockOptions);
-		doReturn(true).when(mockOptions).contains(StandardOpenOption.WRITE);
-		channel.setPosition(0L);
-		doReturn(3L).when(channel).size();
-
-		byte[] bytes = new byte[10];
-		ByteBuffer buffer = ByteBuffer.wrap(bytes);
-		long position = 2L;
-
-		mockStatic(GLFS.class);
-		when(GLFS.glfs_write(fileptr, bytes, 10, 0)).thenReturn(10);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(0);
-		when(GLFS.glfs_lseek(fileptr, 0L, 0)).thenReturn(-1);
-
-		channel.write(buffer, position);
-	}
-
-	@Test(expected = IOException.class)
-	public void testWrite2Arg_secondSeekFails() throws IOException {
+	public void testWrite2Arg_whenWriteFails() throws IOException {
 		doNothing().when(channel).guardClosed();
 		long fileptr = 1234L;
 		channel.setFileptr(fileptr);
 		Set<? extends OpenOption> mockOptions = Mockito.mock(Set.class);
 		channel.setOptions(mockOptions);
 		doReturn(true).when(mockOptions).contains(StandardOpenOption.WRITE);
-		channel.setPosition(0L);
-		doReturn(3L).when(channel).size();
 
 		byte[] bytes = new byte[10];
 		ByteBuffer buffer = ByteBuffer.wrap(bytes);
 		long position = 2L;
 
 		mockStatic(GLFS.class);
-		when(GLFS.glfs_write(fileptr, bytes, 10, 0)).thenReturn(10);
-		when(GLFS.glfs_lseek(fileptr, position, 0)).thenReturn(-1);
+		when(GLFS.glfs_pwrite(fileptr, bytes, 10, position, 0)).thenReturn(-1);
 
 		channel.write(buffer, position);
 	}
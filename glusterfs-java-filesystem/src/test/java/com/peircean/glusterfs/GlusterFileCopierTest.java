@@ -0,0 +1,141 @@
+package com.peircean.glusterfs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import junit.framework.TestCase;
+
+public class GlusterFileCopierTest extends TestCase {
+
+	@Test
+	public void testCopy() throws IOException {
+		byte[] content = new byte[10000];
+		new Random(42).nextBytes(content);
+		File source = File.createTempFile("copier", ".src");
+		File target = File.createTempFile("copier", ".dst");
+		source.deleteOnExit();
+		target.deleteOnExit();
+		Files.write(source.toPath(), content);
+
+		long copied;
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+			copied = GlusterFileCopier.copy(in, out, 0, in.size(), 1024);
+		}
+
+		assertEquals(content.length, copied);
+		assertTrue(Arrays.equals(content, Files.readAllBytes(target.toPath())));
+	}
+
+	@Test
+	public void testCopy_whenSourceShorterThanSize() throws IOException {
+		byte[] content = new byte[3000];
+		new Random(7).nextBytes(content);
+		File source = File.createTempFile("copier", ".src");
+		File target = File.createTempFile("copier", ".dst");
+		source.deleteOnExit();
+		target.deleteOnExit();
+		Files.write(source.toPath(), content);
+
+		long copied;
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+			copied = GlusterFileCopier.copy(in, out, 1000, 5000, 1024);
+		}
+
+		assertEquals(2000, copied);
+		byte[] written = Files.readAllBytes(target.toPath());
+		assertEquals(3000, written.length);
+		assertTrue(Arrays.equals(Arrays.copyOfRange(content, 1000, 3000), Arrays.copyOfRange(written, 1000, 3000)));
+	}
+
+	@Test
+	public void testCopyAll_inParallel() throws IOException {
+		byte[] content = new byte[10 * 1024 + 17];
+		new Random(3).nextBytes(content);
+		File source = File.createTempFile("copier", ".src");
+		File target = File.createTempFile("copier", ".dst");
+		source.deleteOnExit();
+		target.deleteOnExit();
+		Files.write(source.toPath(), content);
+
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+				FileChannel out = FileChannel.open(target.toPath(), StandardOpenOption.WRITE)) {
+			GlusterFileCopier.copyAll(in, out, 4, 1000);
+		}
+
+		assertTrue(Arrays.equals(content, Files.readAllBytes(target.toPath())));
+	}
+
+	@Test
+	public void testCopyOption_whenParallelismNotPositive() {
+		try {
+			GlusterCopyOption.parallelism(0);
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testCopy_whenEmpty() throws IOException {
+		assertEquals(0L, GlusterFileCopier.copy(null, null, 0, 0, 1024));
+	}
+
+	@Test
+	public void testCopyAll_whenAWorkerFails() throws IOException {
+		FileChannel source = Mockito.mock(FileChannel.class);
+		FileChannel target = Mockito.mock(FileChannel.class);
+		final AtomicInteger writing = new AtomicInteger();
+		final IOException failure = new IOException("write failed");
+		Mockito.when(source.size()).thenReturn(10000L);
+		Mockito.when(source.read(Mockito.any(ByteBuffer.class), Mockito.anyLong())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) {
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				int read = buffer.remaining();
+				buffer.position(buffer.limit());
+				return read;
+			}
+		});
+		Mockito.when(target.write(Mockito.any(ByteBuffer.class), Mockito.anyLong())).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) throws Exception {
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				if (0L == (Long) invocation.getArguments()[1]) {
+					throw failure;
+				}
+				writing.incrementAndGet();
+				try {
+					Thread.sleep(50);
+					int written = buffer.remaining();
+					buffer.position(buffer.limit());
+					return written;
+				} finally {
+					writing.decrementAndGet();
+				}
+			}
+		});
+
+		try {
+			GlusterFileCopier.copyAll(source, target, 4, 1000);
+			fail("Expected IOException");
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+
+		assertEquals(0, writing.get());
+	}
+}
@@ -1,6 +1,9 @@
 package com.peircean.glusterfs;
 
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isA;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -40,14 +43,16 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.attribute.DosFileAttributes;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermissions;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
@@ -88,6 +93,8 @@ public class GlusterFileSystemProviderTest extends TestCase {
 	@Mock
 	private GlusterFileChannel mockChannel;
 	@Mock
+	private GlusterFileChannel targetChannel;
+	@Mock
 	private GlusterDirectoryIterator mockIterator;
 	@Mock
 	private GlusterDirectoryStream mockStream;
@@ -96,6 +103,51 @@ public class GlusterFileSystemProviderTest extends TestCase {
 	@Spy
 	private GlusterFileSystemProvider provider = new GlusterFileSystemProvider();
 
+	@Test
+	public void testNewTransferSizer() {
+		Map<String, Object> env = new HashMap<>();
+		env.put(GlusterFileSystemProvider.TRANSFER_SIZE, "65536");
+		env.put(GlusterFileSystemProvider.TRANSFER_SIZE_MAX, 1048576);
+		env.put(GlusterFileSystemProvider.TRANSFER_SIZE_ADAPTIVE, Boolean.TRUE);
+
+		GlusterTransferSizer sizer = provider.newTransferSizer(env);
+
+		assertEquals(65536, sizer.getChunkSize());
+		assertEquals(1048576, sizer.getMaxChunkSize());
+		assertTrue(sizer.isAdaptive());
+	}
+
+	@Test
+	public void testNewTransferSizer_whenNoEnv() {
+		GlusterTransferSizer sizer = provider.newTransferSizer(null);
+
+		assertEquals(GlusterTransferSizer.DEFAULT_CHUNK_SIZE, sizer.getChunkSize());
+		assertFalse(sizer.isAdaptive());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIntOption_whenNotANumber() {
+		GlusterFileSystemProvider.intOption(Collections.singletonMap("transferSize", "big"), "transferSize", 1);
+	}
+
+	@Test
+	public void testNewAttributeCache() {
+		Map<String, Object> env = new HashMap<>();
+		env.put(GlusterFileSystemProvider.ATTRIBUTE_CACHE_TTL, "500");
+		env.put(GlusterFileSystemProvider.ATTRIBUTE_CACHE_MAX_ENTRIES, 100);
+
+		GlusterAttributeCache attributeCache = provider.newAttributeCache(env);
+
+		assertTrue(attributeCache.isEnabled());
+		assertEquals(500, attributeCache.getTtlMillis());
+		assertEquals(100, attributeCache.getMaxEntries());
+	}
+
+	@Test
+	public void testNewAttributeCache_whenNoEnv() {
+		assertFalse(provider.newAttributeCache(null).isEnabled());
+	}
+
 	@Test
 	public void testGetScheme() {
 		GlusterFileSystemProvider p = new GlusterFileSystemProvider();
@@ -291,6 +343,69 @@ public class GlusterFileSystemProviderTest extends TestCase {
 		provider.readAttributes(mockPath, DosFileAttributes.class);
 	}
 
+	@Test
+	public void testReadAttributes_whenTypeListedAndFileGone() throws Exception {
+		doReturn(mockFileSystem).when(mockPath).getFileSystem();
+		doReturn(GlusterListedType.DT_REG).when(mockFileSystem).listedType(mockPath);
+		doReturn("/foo/bar").when(mockPath).getString();
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_stat(anyLong(), eq("/foo/bar"), any(stat.class))).thenReturn(-1);
+
+		try {
+			provider.readAttributes(mockPath, BasicFileAttributes.class);
+			fail("Expected NoSuchFileException");
+		} catch (NoSuchFileException e) {
+			/* the size or times of a listed type would have been asked for later */
+		}
+		verify(mockFileSystem, never()).listedType(mockPath);
+	}
+
+	@Test
+	public void testReadAttributes_whenCached() throws Exception {
+		String path = "/foo/bar";
+		GlusterAttributeCache attributeCache = new GlusterAttributeCache(60000, 10);
+		GlusterFileAttributes cachedAttributes = new GlusterFileAttributes(0100644, 1, 1, 10l, 1l, 1l, 1, 99l);
+		attributeCache.put(path, true, cachedAttributes);
+
+		doReturn(mockFileSystem).when(mockPath).getFileSystem();
+		doReturn(attributeCache).when(mockFileSystem).getAttributeCache();
+		doReturn(path).when(mockPath).getString();
+		mockStatic(GLFS.class);
+
+		GlusterFileAttributes attributes = provider.readAttributes(mockPath, GlusterFileAttributes.class);
+
+		assertSame(cachedAttributes, attributes);
+		assertEquals(1, attributeCache.getHits());
+		verifyStatic(never());
+		GLFS.glfs_stat(anyLong(), anyString(), any(stat.class));
+	}
+
+	@Test
+	public void testReadAttributes_populatesCache() throws Exception {
+		long volptr = 1234l;
+		String path = "/foo/bar";
+		GlusterAttributeCache attributeCache = new GlusterAttributeCache(60000, 10);
+
+		doReturn(mockFileSystem).when(mockPath).getFileSystem();
+		doReturn(volptr).when(mockFileSystem).getVolptr();
+		doReturn(attributeCache).when(mockFileSystem).getAttributeCache();
+		doReturn(path).when(mockPath).getString();
+
+		stat stat = new stat();
+		whenNew(stat.class).withNoArguments().thenReturn(stat);
+		mockStatic(GlusterFileAttributes.class);
+		GlusterFileAttributes fakeAttributes = new GlusterFileAttributes(123, 234, 345, 12345l, 222111l, 121212l,
+				212121, 2234231l);
+		when(GlusterFileAttributes.fromStat(stat)).thenReturn(fakeAttributes);
+		mockStatic(GLFS.class);
+		when(GLFS.glfs_lstat(volptr, path, stat)).thenReturn(0);
+
+		provider.readAttributes(mockPath, GlusterFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+
+		assertSame(fakeAttributes, attributeCache.get(path, false));
+		assertNull(attributeCache.get(path, true));
+	}
+
 	@Test(expected = NoSuchFileException.class)
 	public void testReadAttributes_followLinks_whenNoSuchFile() throws Exception {
 		testReadAttributes_followLinks_helper(false);
@@ -536,6 +651,63 @@ public class GlusterFileSystemProviderTest extends TestCase {
 		provider.checkAccess(mockPath, accessMode);
 	}
 
+	@Test
+	public void testCheckAccess_whenMissingIsCached() throws IOException {
+		String path = "/foo/_SUCCESS";
+		GlusterNegativeCache negativeCache = new GlusterNegativeCache(60000, 10);
+		negativeCache.addMissing(path);
+		doReturn(mockFileSystem).when(mockPath).getFileSystem();
+		doReturn(negativeCache).when(mockFileSystem).getNegativeCache();
+		doReturn(path).when(mockPath).getString();
+		PowerMockito.mockStatic(GLFS.class);
+
+		try {
+			provider.checkAccess(mockPath);
+			fail();
+		} catch (NoSuchFileException e) {
+		}
+
+		assertEquals(1, negativeCache.getHits());
+		PowerMockito.verifyStatic(never());
+		GLFS.glfs_lstat(anyLong(), anyString(), any(stat.class));
+	}
+
+	@Test
+	public void testCheckAccess_recordsMissing() throws Exception {
+		long volptr = 1234l;
+		String path = "/foo/_SUCCESS";
+		GlusterNegativeCache negativeCache = new GlusterNegativeCache(60000, 10);
+		doReturn(mockFileSystem).when(mockPath).getFileSystem();
+		doReturn(volptr).when(mockFileSystem).getVolptr();
+		doReturn(negativeCache).when(mockFileSystem).getNegativeCache();
+		doReturn(path).when(mockPath).getString();
+		stat stat = new stat();
+		whenNew(stat.class).withNoArguments().thenReturn(stat);
+		PowerMockito.mockStatic(GLFS.class);
+		when(GLFS.glfs_lstat(volptr, path, stat)).thenReturn(-1);
+
+		try {
+			provider.checkAccess(mockPath);
+			fail();
+		} catch (NoSuchFileException e) {
+		}
+
+		assertTrue(negativeCache.isMissing(path));
+	}
+
+	@Test
+	public void testNewNegativeCache() {
+		Map<String, Object> env = new HashMap<>();
+		env.put(GlusterFileSystemProvider.NEGATIVE_CACHE_TTL, 250);
+		env.put(GlusterFileSystemProvider.NEGATIVE_CACHE_MAX_ENTRIES, "50");
+
+		GlusterNegativeCache negativeCache = provider.newNegativeCache(env);
+
+		assertEquals(250, negativeCache.getTtlMillis());
+		assertEquals(50, negativeCache.getMaxEntries());
+		assertFalse(provider.newNegativeCache(null).isEnabled());
+	}
+
 	@Test(expected = AccessDeniedException.class)
 	public void testCheckAccess_whenDenied() throws IOException {
 		doReturn(mockFileSystem).when(mockPath).getFileSystem();
@@ -728,6 +900,25 @@ public class GlusterFileSystemProviderTest extends TestCase {
 		helperCopyFile(true);
 	}
 
+	@Test
+	public void testCopyFile_withGlusterCopyOption() throws IOException {
+		doNothing().when(provider).guardFileExists(mockPath);
+		doNothing().when(provider).guardAbsolutePath(mockPath);
+		doNothing().when(provider).guardAbsolutePath(targetPath);
+
+		mockStatic(Files.class);
+		when(Files.exists(targetPath)).thenReturn(false);
+		when(Files.isDirectory(targetPath)).thenReturn(false);
+		when(Files.isDirectory(mockPath)).thenReturn(false);
+		when(Files.createFile(any(GlusterPath.class), any(FileAttribute.class))).thenReturn(targetPath);
+		doNothing().when(provider).copyFileContent(mockPath, targetPath, 4, 1024);
+
+		provider.copy(mockPath, targetPath, GlusterCopyOption.parallelism(4, 1024));
+
+		verify(provider).copyFileContent(mockPath, targetPath, 4, 1024);
+		verify(provider, never()).copyFileContent(mockPath, targetPath);
+	}
+
 	void helperCopyFile(boolean attributes) throws IOException {
 		doNothing().when(provider).guardFileExists(mockPath);
 		doNothing().when(provider).guardAbsolutePath(mockPath);
@@ -853,47 +1044,66 @@ public class GlusterFileSystemProviderTest extends TestCase {
 	public void testCopyFileContent() throws IOException {
 		Set<StandardOpenOption> options = new HashSet<>();
 		options.add(StandardOpenOption.READ);
+		Set<StandardOpenOption> targetOptions = new HashSet<>();
+		targetOptions.add(StandardOpenOption.WRITE);
+		targetOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
 
-		byte[] bytes = new byte[8192];
 		doReturn(mockChannel).when(provider).newFileChannel(mockPath, options);
-		when(mockChannel.read(any(ByteBuffer.class))).thenReturn(10, 10, 0);
-
-		mockStatic(Arrays.class);
-		when(Arrays.copyOf(bytes, 10)).thenReturn(bytes);
-		mockStatic(Files.class);
-		when(Files.write(mockPath, bytes, StandardOpenOption.TRUNCATE_EXISTING)).thenReturn(mockPath);
-		when(Files.write(mockPath, bytes, StandardOpenOption.APPEND)).thenReturn(mockPath);
-
+		doReturn(targetChannel).when(provider).newFileChannel(targetPath, targetOptions);
+		doReturn(mockFileSystem).when(targetPath).getFileSystem();
+		doReturn(20L).when(mockChannel).size();
+		when(mockChannel.read(any(ByteBuffer.class), Mockito.eq(0L))).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) throws Throwable {
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				int n = buffer.remaining();
+				buffer.position(buffer.limit());
+				return n;
+			}
+		});
+		when(targetChannel.write(any(ByteBuffer.class), Mockito.eq(0L))).thenAnswer(new Answer<Integer>() {
+			@Override
+			public Integer answer(InvocationOnMock invocation) throws Throwable {
+				ByteBuffer buffer = (ByteBuffer) invocation.getArguments()[0];
+				int n = buffer.remaining();
+				buffer.position(buffer.limit());
+				return n;
+			}
+		});
 		doNothing().when(mockChannel).close();
+		doNothing().when(targetChannel).close();
 
-		provider.copyFileContent(mockPath, mockPath);
+		provider.copyFileContent(mockPath, targetPath);
 
+		verify(mockChannel).read(any(ByteBuffer.class), Mockito.eq(0L));
+		verify(targetChannel).write(any(ByteBuffer.class), Mockito.eq(0L));
 		verify(mockChannel).close();
-		verifyStatic();
-		Files.write(mockPath, bytes, StandardOpenOption.APPEND);
-		verifyStatic();
-		Files.write(mockPath, bytes, StandardOpenOption.TRUNCATE_EXISTING);
-		verifyStatic(times(2));
-		Arrays.copyOf(bytes, 10);
-		verify(mockChannel, times(3)).read(any(ByteBuffer.class));
+		verify(targetChannel).close();
 		verify(provider).newFileChannel(mockPath, options);
+		verify(provider).newFileChannel(targetPath, targetOptions);
 	}
 
 	@Test
 	public void testCopyFileContent_whenNothingRead() throws IOException {
 		Set<StandardOpenOption> options = new HashSet<>();
 		options.add(StandardOpenOption.READ);
+		Set<StandardOpenOption> targetOptions = new HashSet<>();
+		targetOptions.add(StandardOpenOption.WRITE);
+		targetOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+
 		doReturn(mockChannel).when(provider).newFileChannel(mockPath, options);
-		when(mockChannel.read(any(ByteBuffer.class))).thenReturn(0);
+		doReturn(targetChannel).when(provider).newFileChannel(targetPath, targetOptions);
+		doReturn(mockFileSystem).when(targetPath).getFileSystem();
+		doReturn(0L).when(mockChannel).size();
 		doNothing().when(mockChannel).close();
+		doNothing().when(targetChannel).close();
 
-		provider.copyFileContent(mockPath, mockPath);
+		provider.copyFileContent(mockPath, targetPath);
 
 		verify(mockChannel).close();
-		verify(mockChannel).read(any(ByteBuffer.class));
-		verify(provider).newFileChannel(mockPath, options);
-
-		verifyNoMoreInteractions(mockPath);
+		verify(targetChannel).close();
+		verify(mockChannel, never()).read(any(ByteBuffer.class), Mockito.anyLong());
+		verify(targetChannel, never()).write(any(ByteBuffer.class), Mockito.anyLong());
 	}
 
 	@Test
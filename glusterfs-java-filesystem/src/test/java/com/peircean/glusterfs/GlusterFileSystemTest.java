@@ -13,6 +13,7 @@ import org.powermock.modules.junit4.PowerMockRunner;
 import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.nio.file.LinkOption;
 import java.nio.file.PathMatcher;
 import java.util.Iterator;
 import java.util.regex.Matcher;
@@ -182,4 +183,78 @@ public class GlusterFileSystemTest extends TestCase {
             Pattern.compile(globPattern);
         }
     }
+
+    @Test
+    public void testPathChanged() {
+        GlusterAttributeCache attributeCache = new GlusterAttributeCache(60000, 10);
+        GlusterNegativeCache negativeCache = new GlusterNegativeCache(60000, 10);
+        fileSystem.setAttributeCache(attributeCache);
+        fileSystem.setNegativeCache(negativeCache);
+        GlusterFileAttributes attributes = new GlusterFileAttributes(0100644, 1, 1, 10l, 1l, 1l, 1, 99l);
+        attributeCache.put("/dir", true, attributes);
+        attributeCache.put("/dir/a", false, attributes);
+        attributeCache.put("/dir/b", true, attributes);
+        negativeCache.addMissing("/dir/a");
+        negativeCache.addMissing("/dir/c");
+
+        fileSystem.pathChanged(new GlusterPath(fileSystem, "/dir/a"), false);
+
+        assertNull(attributeCache.get("/dir", true));
+        assertNull(attributeCache.get("/dir/a", false));
+        assertNotNull(attributeCache.get("/dir/b", true));
+        assertFalse(negativeCache.isMissing("/dir/a"));
+        assertTrue(negativeCache.isMissing("/dir/c"));
+    }
+
+    @Test
+    public void testPathChanged_whenTree() {
+        GlusterNegativeCache negativeCache = new GlusterNegativeCache(60000, 10);
+        fileSystem.setNegativeCache(negativeCache);
+        negativeCache.addMissing("/dir/_SUCCESS");
+        negativeCache.addMissing("/other/_SUCCESS");
+
+        fileSystem.pathChanged(new GlusterPath(fileSystem, "/dir"), true);
+
+        assertFalse(negativeCache.isMissing("/dir/_SUCCESS"));
+        assertTrue(negativeCache.isMissing("/other/_SUCCESS"));
+    }
+
+    @Test
+    public void testListedType() {
+        GlusterPath path = new GlusterPath(fileSystem, "/dir/sub");
+        fileSystem.listed(path, GlusterListedType.DT_DIR);
+
+        assertEquals(GlusterListedType.DT_DIR, fileSystem.listedType(path));
+    }
+
+    @Test
+    public void testListedType_whenTurnedOff() {
+        fileSystem.setListedAttributesTtl(0);
+        GlusterPath path = new GlusterPath(fileSystem, "/dir/a");
+        fileSystem.listed(path, GlusterListedType.DT_REG);
+
+        assertEquals(GlusterListedType.DT_UNKNOWN, fileSystem.listedType(path));
+    }
+
+    @Test
+    public void testListedType_whenSymlink() {
+        GlusterPath path = new GlusterPath(fileSystem, "/dir/link");
+        fileSystem.listed(path, GlusterListedType.DT_LNK);
+
+        assertEquals(GlusterListedType.DT_UNKNOWN, fileSystem.listedType(path));
+        assertEquals(GlusterListedType.DT_LNK, fileSystem.listedType(path, LinkOption.NOFOLLOW_LINKS));
+    }
+
+    @Test
+    public void testListedType_whenUnknownOrStale() {
+        GlusterPath unknown = new GlusterPath(fileSystem, "/dir/a");
+        GlusterPath stale = new GlusterPath(fileSystem, "/dir/b");
+        fileSystem.listed(unknown, GlusterListedType.DT_UNKNOWN);
+        fileSystem.listed(stale, GlusterListedType.DT_REG);
+
+        fileSystem.pathChanged(new GlusterPath(fileSystem, "/dir/c"), false);
+
+        assertEquals(GlusterListedType.DT_UNKNOWN, fileSystem.listedType(unknown));
+        assertEquals(GlusterListedType.DT_UNKNOWN, fileSystem.listedType(stale));
+    }
 }
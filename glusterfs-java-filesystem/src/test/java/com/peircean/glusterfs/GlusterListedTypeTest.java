@@ -0,0 +1,53 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterListedTypeTest extends TestCase {
+	private final GlusterPath path = mock(GlusterPath.class);
+	private final GlusterFileSystem fileSystem = mock(GlusterFileSystem.class);
+	private final GlusterFileSystemProvider provider = mock(GlusterFileSystemProvider.class);
+
+	public GlusterListedTypeTest() {
+		when(path.getFileSystem()).thenReturn(fileSystem);
+		when(fileSystem.getProvider()).thenReturn(provider);
+	}
+
+	@Test
+	public void testIsDirectory_fromListedType() throws IOException {
+		when(fileSystem.listedType(path, LinkOption.NOFOLLOW_LINKS)).thenReturn(GlusterListedType.DT_DIR);
+
+		assertTrue(GlusterListedType.isDirectory(path, LinkOption.NOFOLLOW_LINKS));
+		verify(provider, never()).readAttributes(path, GlusterFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+	}
+
+	@Test
+	public void testIsDirectory_whenListedAsFile() throws IOException {
+		when(fileSystem.listedType(path)).thenReturn(GlusterListedType.DT_REG);
+
+		assertFalse(GlusterListedType.isDirectory(path));
+		verify(provider, never()).readAttributes(path, GlusterFileAttributes.class);
+	}
+
+	@Test
+	public void testIsDirectory_whenNotAGlusterPath() throws IOException {
+		Path dir = Files.createTempDirectory("listed-type");
+		try {
+			assertTrue(GlusterListedType.isDirectory(dir));
+			assertFalse(GlusterListedType.isDirectory(dir.resolve("missing")));
+		} finally {
+			Files.delete(dir);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterNegativeCacheTest extends TestCase {
+
+	@Test
+	public void testIsMissing_whenAdded() {
+		GlusterNegativeCache cache = new GlusterNegativeCache(60000, 10);
+		cache.addMissing("/a/_SUCCESS");
+
+		assertTrue(cache.isMissing("/a/_SUCCESS"));
+		assertFalse(cache.isMissing("/a/other"));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testIsMissing_whenDisabled() {
+		GlusterNegativeCache cache = new GlusterNegativeCache();
+		cache.addMissing("/a");
+
+		assertFalse(cache.isEnabled());
+		assertFalse(cache.isMissing("/a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testIsMissing_whenExpired() throws InterruptedException {
+		GlusterNegativeCache cache = new GlusterNegativeCache(1, 10);
+		cache.addMissing("/a");
+		Thread.sleep(10);
+
+		assertFalse(cache.isMissing("/a"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testAddMissing_evictsLeastRecentlyUsed() {
+		GlusterNegativeCache cache = new GlusterNegativeCache(60000, 2);
+		cache.addMissing("/a");
+		cache.addMissing("/b");
+		cache.isMissing("/a");
+		cache.addMissing("/c");
+
+		assertEquals(2, cache.size());
+		assertTrue(cache.isMissing("/a"));
+		assertFalse(cache.isMissing("/b"));
+	}
+
+	@Test
+	public void testInvalidateTree() {
+		GlusterNegativeCache cache = new GlusterNegativeCache(60000, 10);
+		cache.addMissing("/dir");
+		cache.addMissing("/dir/a");
+		cache.addMissing("/dirt");
+
+		cache.invalidateTree("/dir");
+
+		assertEquals(1, cache.size());
+		assertTrue(cache.isMissing("/dirt"));
+	}
+
+	@Test
+	public void testOf_whenDisabled() {
+		GlusterFileSystem fileSystem = mock(GlusterFileSystem.class);
+		when(fileSystem.getNegativeCache()).thenReturn(new GlusterNegativeCache());
+
+		assertNull(GlusterNegativeCache.of(fileSystem));
+	}
+}
@@ -527,6 +527,38 @@ public class GlusterPathTest extends TestCase {
         verify(mockWatchService).registerPath(path, kinds);
     }
 
+    @Test
+    public void testRegisterWatchService_withFileTree() throws IOException {
+        GlusterPath path = spy(new GlusterPath(mockFileSystem, new String[]{"foo", "bar"}, true));
+        GlusterWatchService mockWatchService = mock(GlusterWatchService.class);
+        doNothing().when(path).guardRegisterWatchService(mockWatchService);
+        doNothing().when(path).guardRegisterWatchDirectory();
+        WatchEvent.Kind[] kinds = new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE};
+        WatchKey mockKey = mock(WatchKey.class);
+        doReturn(mockKey).when(mockWatchService).registerPath(path, true, kinds);
+
+        assertEquals(mockKey, path.register(mockWatchService, kinds, GlusterWatchModifier.FILE_TREE));
+        assertEquals(mockKey, path.register(mockWatchService, kinds, namedModifier("FILE_TREE"), namedModifier("HIGH")));
+
+        verify(mockWatchService, times(2)).registerPath(path, true, kinds);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRegisterWatchService_withUnknownModifier() throws IOException {
+        GlusterPath path = new GlusterPath(mockFileSystem, new String[]{"foo"}, true);
+        path.register(mock(GlusterWatchService.class), new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE},
+                namedModifier("OTHER"));
+    }
+
+    private static WatchEvent.Modifier namedModifier(final String name) {
+        return new WatchEvent.Modifier() {
+            @Override
+            public String name() {
+                return name;
+            }
+        };
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void testGuardRegisterWatchService() {
         GlusterPath path = spy(new GlusterPath(mockFileSystem, new String[]{}, false));
@@ -535,5 +567,29 @@ public class GlusterPathTest extends TestCase {
         path.guardRegisterWatchService(mockWatchService);
     }
 
-}
 
+    @Test
+    public void testChild() {
+        GlusterPath p = new GlusterPath(mockFileSystem, "/foo/bar");
+
+        GlusterPath child = p.child("baz");
+
+        assertEquals(new GlusterPath(mockFileSystem, "/foo/bar/baz"), child);
+        assertEquals("/foo/bar/baz", child.getString());
+    }
+
+    @Test
+    public void testChild_ofRoot() {
+        GlusterPath child = new GlusterPath(mockFileSystem, "/").child("foo");
+
+        assertEquals(new GlusterPath(mockFileSystem, "/foo"), child);
+        assertEquals("/foo", child.getString());
+    }
+
+    @Test
+    public void testChild_whenParentHasTrailingSeparator() {
+        GlusterPath child = new GlusterPath(mockFileSystem, "/foo/").child("bar");
+
+        assertEquals("/foo/bar", child.getString());
+    }
+}
@@ -0,0 +1,227 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import junit.framework.TestCase;
+
+public class GlusterReadAheadTest extends TestCase {
+	private static final int WINDOW = 16 * 1024;
+	private static final int FILE_SIZE = 64 * 1024 + 100;
+
+	private final byte[] content = new byte[FILE_SIZE];
+	private final GlusterFileChannel channel = mock(GlusterFileChannel.class);
+
+	public GlusterReadAheadTest() throws IOException {
+		new Random(11).nextBytes(content);
+		when(channel.pread(any(byte[].class), anyLong(), anyLong())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				byte[] bytes = (byte[]) invocation.getArguments()[0];
+				long count = (Long) invocation.getArguments()[1];
+				long offset = (Long) invocation.getArguments()[2];
+				int n = (int) Math.max(0, Math.min(count, FILE_SIZE - offset));
+				System.arraycopy(content, (int) Math.min(offset, FILE_SIZE), bytes, 0, n);
+				return (long) n;
+			}
+		});
+		when(channel.readInto(any(ByteBuffer.class), anyLong())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				ByteBuffer dst = (ByteBuffer) invocation.getArguments()[0];
+				long offset = (Long) invocation.getArguments()[1];
+				int n = (int) Math.max(0, Math.min(dst.remaining(), FILE_SIZE - offset));
+				dst.put(content, (int) Math.min(offset, FILE_SIZE), n);
+				return (long) n;
+			}
+		});
+	}
+
+	@Test
+	public void testSequentialReads() throws IOException {
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 1024 * 1024);
+		GlusterReadAhead readAhead = GlusterReadAhead.create(channel, policy);
+
+		byte[] out = new byte[FILE_SIZE];
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = 0;
+		long read;
+		while ((read = readAhead.read(buffer, position)) > 0) {
+			buffer.flip();
+			buffer.get(out, (int) position, (int) read);
+			buffer.clear();
+			position += read;
+		}
+
+		assertEquals(FILE_SIZE, position);
+		assertTrue(Arrays.equals(content, out));
+		verify(channel, times(GlusterReadAhead.SEQUENTIAL_THRESHOLD)).readInto(any(ByteBuffer.class), anyLong());
+		verify(channel, atMost(FILE_SIZE / WINDOW + 2)).pread(any(byte[].class), anyLong(), anyLong());
+		assertTrue(policy.getHits() > policy.getMisses());
+	}
+
+	@Test
+	public void testRandomReadsBypassWindow() throws IOException {
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 1024 * 1024);
+		GlusterReadAhead readAhead = GlusterReadAhead.create(channel, policy);
+
+		ByteBuffer buffer = ByteBuffer.allocate(100);
+		for (long position : new long[] { 5000, 100, 30000, 9000 }) {
+			buffer.clear();
+			assertEquals(100, readAhead.read(buffer, position));
+			assertEquals(content[(int) position], buffer.get(0));
+		}
+
+		verify(channel, never()).pread(any(byte[].class), anyLong(), anyLong());
+		assertEquals(4, policy.getMisses());
+		assertEquals(0, readAhead.getWindowsHeld());
+	}
+
+	@Test
+	public void testSequentialReads_withShortPreads() throws IOException {
+		GlusterFileChannel shortChannel = mock(GlusterFileChannel.class);
+		when(shortChannel.pread(any(byte[].class), anyLong(), anyLong())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				byte[] bytes = (byte[]) invocation.getArguments()[0];
+				long count = Math.min(1000, (Long) invocation.getArguments()[1]);
+				long offset = (Long) invocation.getArguments()[2];
+				int n = (int) Math.max(0, Math.min(count, FILE_SIZE - offset));
+				System.arraycopy(content, (int) Math.min(offset, FILE_SIZE), bytes, 0, n);
+				return (long) n;
+			}
+		});
+		when(shortChannel.readInto(any(ByteBuffer.class), anyLong())).thenAnswer(new Answer<Long>() {
+			@Override
+			public Long answer(InvocationOnMock invocation) throws Throwable {
+				ByteBuffer dst = (ByteBuffer) invocation.getArguments()[0];
+				long offset = (Long) invocation.getArguments()[1];
+				int n = (int) Math.max(0, Math.min(dst.remaining(), FILE_SIZE - offset));
+				dst.put(content, (int) Math.min(offset, FILE_SIZE), n);
+				return (long) n;
+			}
+		});
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 1024 * 1024);
+		GlusterReadAhead readAhead = GlusterReadAhead.create(shortChannel, policy);
+
+		byte[] out = new byte[FILE_SIZE];
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = 0;
+		long read;
+		ByteBuffer scratch = null;
+		while ((read = readAhead.read(buffer, position)) > 0) {
+			buffer.flip();
+			buffer.get(out, (int) position, (int) read);
+			buffer.clear();
+			position += read;
+			if (null == scratch) {
+				scratch = readAhead.getScratch();
+			} else {
+				assertSame(scratch, readAhead.getScratch());
+			}
+		}
+
+		assertTrue(Arrays.equals(content, out));
+		assertNotNull(scratch);
+		assertEquals(2, readAhead.getWindowsHeld());
+		readAhead.close();
+		assertEquals(0, readAhead.getWindowsHeld());
+		assertNull(readAhead.getScratch());
+	}
+
+	@Test
+	public void testSequentialReads_whenPrefetchFails() throws IOException {
+		doAnswer(new FailingPrefetch()).when(channel).pread(any(byte[].class), anyLong(), anyLong());
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 1024 * 1024);
+		GlusterReadAhead readAhead = GlusterReadAhead.create(channel, policy);
+
+		byte[] out = new byte[FILE_SIZE];
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long position = 0;
+		long read;
+		while ((read = readAhead.read(buffer, position)) > 0) {
+			buffer.flip();
+			buffer.get(out, (int) position, (int) read);
+			buffer.clear();
+			position += read;
+		}
+
+		assertEquals(FILE_SIZE, position);
+		assertTrue(Arrays.equals(content, out));
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 1024 * 1024);
+		GlusterReadAhead readAhead = GlusterReadAhead.create(channel, policy);
+		ByteBuffer buffer = ByteBuffer.allocate(10);
+		for (int i = 0; i < 4; i++) {
+			buffer.clear();
+			readAhead.read(buffer, i * 10);
+		}
+		long hits = policy.getHits();
+
+		readAhead.invalidate();
+		buffer.clear();
+		readAhead.read(buffer, 40);
+
+		assertEquals(hits, policy.getHits());
+	}
+
+	@Test
+	public void testCreate_whenBudgetExhausted() {
+		GlusterReadAheadPolicy policy = new GlusterReadAheadPolicy(WINDOW, 3 * WINDOW);
+		GlusterReadAhead first = GlusterReadAhead.create(channel, policy);
+
+		assertNotNull(first);
+		assertNull(GlusterReadAhead.create(channel, policy));
+		assertEquals(2L * WINDOW, policy.getMemoryInUse());
+
+		first.close();
+
+		assertEquals(0L, policy.getMemoryInUse());
+		assertNotNull(GlusterReadAhead.create(channel, policy));
+	}
+
+	@Test
+	public void testCreate_whenDisabled() {
+		assertNull(GlusterReadAhead.create(channel, new GlusterReadAheadPolicy()));
+		assertNull(GlusterReadAhead.create(channel, null));
+	}
+
+	/* fails the first pread made off the reading thread, which is the first prefetch */
+	private final class FailingPrefetch implements Answer<Long> {
+		private final Thread reader = Thread.currentThread();
+		private boolean failed;
+
+		@Override
+		public synchronized Long answer(InvocationOnMock invocation) throws Throwable {
+			if (!failed && reader != Thread.currentThread()) {
+				failed = true;
+				throw new IOException("prefetch failed");
+			}
+			byte[] bytes = (byte[]) invocation.getArguments()[0];
+			long count = (Long) invocation.getArguments()[1];
+			long offset = (Long) invocation.getArguments()[2];
+			int n = (int) Math.max(0, Math.min(count, FILE_SIZE - offset));
+			System.arraycopy(content, (int) Math.min(offset, FILE_SIZE), bytes, 0, n);
+			return (long) n;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the streams over a small tree on the default file system; the walk
+ * only uses the Files API, so the provider does not matter.
+ */
+public class GlusterStreamsTest extends TestCase {
+	private Path root;
+
+	@Before
+	@Override
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("gluster-streams");
+		for (int i = 0; i < 4; i++) {
+			Path dir = Files.createDirectories(root.resolve("d" + i).resolve("sub"));
+			for (int j = 0; j < 5; j++) {
+				Files.createFile(dir.resolve("f" + j));
+			}
+		}
+	}
+
+	@After
+	@Override
+	public void tearDown() throws IOException {
+		deleteRecursively(root);
+	}
+
+	@Test
+	public void testWalk() throws IOException {
+		try (Stream<Path> stream = GlusterStreams.walk(root)) {
+			List<Path> paths = stream.collect(Collectors.<Path> toList());
+
+			/* root, and per dN: dN, dN/sub, 5 files */
+			assertEquals(1 + 4 * 7, paths.size());
+			assertEquals(paths.size(), new HashSet<>(paths).size());
+			assertEquals(root, paths.get(0));
+		}
+	}
+
+	@Test
+	public void testWalk_inParallel() throws IOException {
+		try (Stream<Path> stream = GlusterStreams.walk(root)) {
+			Set<Path> paths = stream.parallel().collect(Collectors.<Path> toSet());
+
+			assertEquals(1 + 4 * 7, paths.size());
+			assertTrue(paths.contains(root.resolve("d3").resolve("sub").resolve("f4")));
+		}
+	}
+
+	@Test
+	public void testWalk_withDepthLimit() throws IOException {
+		try (Stream<Path> stream = GlusterStreams.walk(root, 1)) {
+			assertEquals(1 + 4, stream.count());
+		}
+	}
+
+	@Test
+	public void testWalk_whenStartIsMissing() throws IOException {
+		try {
+			GlusterStreams.walk(root.resolve("missing"));
+			fail();
+		} catch (NoSuchFileException e) {
+		}
+	}
+
+	@Test
+	public void testTreeSpliterator_splitsTheStartDirectory() {
+		List<Spliterator<Path>> parts = new ArrayList<>();
+		parts.add(new GlusterTreeSpliterator(root, Integer.MAX_VALUE));
+		for (int i = 0; i < parts.size(); i++) {
+			Spliterator<Path> split;
+			while (null != (split = parts.get(i).trySplit())) {
+				assertTrue(split.hasCharacteristics(Spliterator.DISTINCT | Spliterator.NONNULL));
+				parts.add(split);
+			}
+		}
+
+		/* the root, and one part per entry of it */
+		assertEquals(1 + 4, parts.size());
+		Set<Path> paths = new HashSet<>();
+		Collect collect = new Collect(paths);
+		for (Spliterator<Path> part : parts) {
+			while (part.tryAdvance(collect)) {
+			}
+		}
+		assertEquals(1 + 4 * 7, paths.size());
+		assertTrue(paths.contains(root));
+		assertTrue(paths.contains(root.resolve("d2").resolve("sub").resolve("f3")));
+	}
+
+	@Test
+	public void testTreeSpliterator_whenStartIsAFile() throws IOException {
+		Path file = root.resolve("d0").resolve("sub").resolve("f0");
+		GlusterTreeSpliterator spliterator = new GlusterTreeSpliterator(file, Integer.MAX_VALUE);
+
+		assertNull(spliterator.trySplit());
+		assertTrue(spliterator.tryAdvance(new Ignore()));
+		assertFalse(spliterator.tryAdvance(new Ignore()));
+	}
+
+	@Test
+	public void testTreeSpliterator_splitsBySubdirectory() {
+		GlusterTreeSpliterator spliterator = new GlusterTreeSpliterator(root, Integer.MAX_VALUE);
+		Ignore ignore = new Ignore();
+
+		/* once walking, there is nothing to hand over until the root has a listed subdirectory */
+		assertTrue(spliterator.tryAdvance(ignore));
+		assertNull(spliterator.trySplit());
+		assertTrue(spliterator.tryAdvance(ignore));
+		Spliterator<Path> split = spliterator.trySplit();
+		assertNotNull(split);
+		assertTrue(split.hasCharacteristics(Spliterator.DISTINCT | Spliterator.NONNULL));
+
+		long count = 2;
+		while (split.tryAdvance(ignore)) {
+			count++;
+		}
+		while (spliterator.tryAdvance(ignore)) {
+			count++;
+		}
+		spliterator.close();
+		assertEquals(1 + 4 * 7, count);
+	}
+
+	@Test
+	public void testList() throws IOException {
+		try (Stream<Path> stream = GlusterStreams.list(root)) {
+			assertEquals(4, stream.parallel().count());
+		}
+	}
+
+	private static final class Ignore implements Consumer<Path> {
+		@Override
+		public void accept(Path path) {
+		}
+	}
+
+	private static final class Collect implements Consumer<Path> {
+		private final Set<Path> paths;
+
+		Collect(Set<Path> paths) {
+			this.paths = paths;
+		}
+
+		@Override
+		public void accept(Path path) {
+			assertTrue(paths.add(path));
+		}
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path entry : stream) {
+					deleteRecursively(entry);
+				}
+			}
+		}
+		Files.delete(path);
+	}
+}
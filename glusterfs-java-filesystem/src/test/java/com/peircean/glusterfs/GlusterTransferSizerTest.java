@@ -0,0 +1,82 @@
+package com.peircean.glusterfs;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class GlusterTransferSizerTest extends TestCase {
+
+	@Test
+	public void testFixed() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(8192, 65536, false);
+		for (int i = 0; i < 20; i++) {
+			sizer.record(8192, 8192, 1000);
+		}
+		assertEquals(8192, sizer.getChunkSize());
+		assertTrue(sizer.isSettled());
+		assertEquals(20, sizer.getTransferCount());
+		assertEquals(20 * 8192L, sizer.getBytesTransferred());
+	}
+
+	@Test
+	public void testAdaptive_growsWhileThroughputImproves() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(1024, 8192, true);
+		/* every step takes the same time regardless of size */
+		for (int i = 0; i < 40 && !sizer.isSettled(); i++) {
+			int chunk = sizer.getChunkSize();
+			sizer.record(chunk, chunk, 1000);
+		}
+		assertEquals(8192, sizer.getChunkSize());
+		assertTrue(sizer.isSettled());
+	}
+
+	@Test
+	public void testAdaptive_settlesWhenThroughputFlattens() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(1024, 1024 * 1024, true);
+		/* time grows linearly with size from 4 KB on, so bigger chunks stop paying off */
+		for (int i = 0; i < 100 && !sizer.isSettled(); i++) {
+			int chunk = sizer.getChunkSize();
+			sizer.record(chunk, chunk, Math.max(4096, chunk));
+		}
+		assertTrue(sizer.isSettled());
+		assertEquals(4096, sizer.getChunkSize());
+	}
+
+	@Test
+	public void testAdaptive_stepsBackWhenSlower() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(1024, 1024 * 1024, true);
+		for (int i = 0; i < 4; i++) {
+			sizer.record(1024, 1024, 1000);
+		}
+		assertEquals(2048, sizer.getChunkSize());
+		for (int i = 0; i < 4; i++) {
+			sizer.record(2048, 2048, 4000);
+		}
+		assertTrue(sizer.isSettled());
+		assertEquals(1024, sizer.getChunkSize());
+	}
+
+	@Test
+	public void testAdaptive_stepsBackFromCappedStep() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(3000, 5000, true);
+		for (int i = 0; i < 4; i++) {
+			sizer.record(3000, 3000, 1000);
+		}
+		assertEquals(5000, sizer.getChunkSize());
+		for (int i = 0; i < 4; i++) {
+			sizer.record(5000, 5000, 4000);
+		}
+		assertTrue(sizer.isSettled());
+		assertEquals(3000, sizer.getChunkSize());
+	}
+
+	@Test
+	public void testAdaptive_ignoresShortTransfers() {
+		GlusterTransferSizer sizer = new GlusterTransferSizer(1024, 8192, true);
+		for (int i = 0; i < 10; i++) {
+			sizer.record(1024, 100, 1000);
+		}
+		assertEquals(1024, sizer.getChunkSize());
+		assertFalse(sizer.isSettled());
+	}
+}
@@ -0,0 +1,143 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.verifyStatic;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.junit4.PowerMockRunner;
+
+import com.peircean.libgfapi_jni.internal.GLFS;
+import com.peircean.libgfapi_jni.internal.UtilJNI;
+
+import junit.framework.TestCase;
+
+/**
+ * Deletes a tree of Gluster paths with GLFS mocked, to see which call removes
+ * each entry. The tree is /root holding the directory sub and the file file;
+ * sub holds the file inner. Every entry is listed with its d_type.
+ */
+@RunWith(PowerMockRunner.class)
+@PrepareForTest({ GLFS.class, UtilJNI.class })
+public class GlusterTreeDeleterPowerMockTest extends TestCase {
+	private static final long VOLPTR = 123l;
+	private static final int DIRECTORY = 0040755;
+
+	@Mock
+	private GlusterFileSystem mockFileSystem;
+	@Mock
+	private GlusterFileSystemProvider mockProvider;
+
+	private GlusterPath root;
+	private GlusterPath sub;
+	private GlusterPath file;
+	private GlusterPath inner;
+
+	@Before
+	@Override
+	public void setUp() throws IOException {
+		doReturn("/").when(mockFileSystem).getSeparator();
+		doReturn(mockProvider).when(mockFileSystem).provider();
+		doReturn(VOLPTR).when(mockFileSystem).getVolptr();
+		root = new GlusterPath(mockFileSystem, "/root");
+		sub = new GlusterPath(mockFileSystem, "/root/sub");
+		file = new GlusterPath(mockFileSystem, "/root/file");
+		inner = new GlusterPath(mockFileSystem, "/root/sub/inner");
+		sub.setListed(GlusterListedType.DT_DIR, 0, 0);
+		file.setListed(GlusterListedType.DT_REG, 0, 0);
+		inner.setListed(GlusterListedType.DT_REG, 0, 0);
+
+		BasicFileAttributes rootAttributes = attributes(DIRECTORY);
+		DirectoryStream<Path> rootListing = listing(sub, file);
+		DirectoryStream<Path> subListing = listing(inner);
+		when(mockProvider.readAttributes(root, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)).thenReturn(
+				rootAttributes);
+		when(mockProvider.newDirectoryStream(eq(root), any(DirectoryStream.Filter.class))).thenReturn(rootListing);
+		when(mockProvider.newDirectoryStream(eq(sub), any(DirectoryStream.Filter.class))).thenReturn(subListing);
+		mockStatic(GLFS.class);
+		mockStatic(UtilJNI.class);
+	}
+
+	@Test
+	public void testDelete_choosesUnlinkOrRmdirFromTheListing() throws IOException {
+		GlusterTreeDeleter.Result result = new GlusterTreeDeleter(2).delete(root, null);
+
+		assertTrue(result.isComplete());
+		assertEquals(4, result.getDeleted());
+		verifyStatic();
+		GLFS.glfs_unlink(VOLPTR, "/root/file");
+		verifyStatic();
+		GLFS.glfs_unlink(VOLPTR, "/root/sub/inner");
+		verifyStatic();
+		GLFS.glfs_rmdir(VOLPTR, "/root/sub");
+		verifyStatic();
+		GLFS.glfs_rmdir(VOLPTR, "/root");
+		verifyStatic(never());
+		GLFS.glfs_rmdir(VOLPTR, "/root/file");
+		verifyStatic(never());
+		GLFS.glfs_unlink(VOLPTR, "/root/sub");
+	}
+
+	@Test
+	public void testDelete_tellsTheFileSystemWhatChanged() throws IOException {
+		new GlusterTreeDeleter(2).delete(root, null);
+
+		verify(mockFileSystem).pathChanged(file, false);
+		verify(mockFileSystem).pathChanged(inner, false);
+		verify(mockFileSystem).pathChanged(sub, true);
+		verify(mockFileSystem).pathChanged(root, true);
+	}
+
+	@Test
+	public void testDelete_whenUnlinkFails() throws IOException {
+		when(GLFS.glfs_unlink(VOLPTR, "/root/sub/inner")).thenReturn(-1);
+		when(UtilJNI.strerror()).thenReturn("Permission denied");
+
+		GlusterTreeDeleter.Result result = new GlusterTreeDeleter(2).delete(root, null);
+
+		assertFalse(result.isComplete());
+		assertEquals(1, result.getDeleted());
+		IOException failure = result.getFailures().get(inner);
+		assertNotNull(failure);
+		assertEquals("/root/sub/inner: Permission denied", failure.getMessage());
+		verifyStatic(never());
+		GLFS.glfs_rmdir(anyLong(), anyString());
+	}
+
+	private static GlusterFileAttributes attributes(int mode) {
+		return new GlusterFileAttributes(mode, 0, 0, 0l, 0l, 0l, 0l, 1l);
+	}
+
+	private static DirectoryStream<Path> listing(final Path... entries) {
+		DirectoryStream<Path> stream = mock(DirectoryStream.class);
+		when(stream.iterator()).thenAnswer(new Answer<Iterator<Path>>() {
+			@Override
+			public Iterator<Path> answer(InvocationOnMock invocation) {
+				return Arrays.asList(entries).iterator();
+			}
+		});
+		return stream;
+	}
+}
@@ -0,0 +1,101 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Deletes a small tree on the default file system, where the deleter falls
+ * back to Files.delete for every entry.
+ */
+public class GlusterTreeDeleterTest extends TestCase {
+	private Path root;
+	private Path outside;
+
+	@Before
+	@Override
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("tree-deleter");
+		outside = Files.createTempDirectory("tree-deleter-outside");
+		Files.createFile(outside.resolve("kept"));
+		for (int i = 0; i < 3; i++) {
+			Path dir = Files.createDirectories(root.resolve("d" + i).resolve("sub"));
+			for (int j = 0; j < 5; j++) {
+				Files.createFile(dir.resolve("f" + j));
+			}
+		}
+		Files.createSymbolicLink(root.resolve("link"), outside);
+	}
+
+	@After
+	@Override
+	public void tearDown() throws IOException {
+		if (Files.exists(root)) {
+			new GlusterTreeDeleter(1).delete(root, null);
+		}
+		Files.delete(outside.resolve("kept"));
+		Files.delete(outside);
+	}
+
+	@Test
+	public void testDelete() throws IOException {
+		final Set<Path> deleted = Collections.synchronizedSet(new HashSet<Path>());
+		GlusterTreeDeleter.Result result = new GlusterTreeDeleter(4, 2).delete(root, new GlusterTreeDeleter.Listener() {
+			@Override
+			public void deleted(Path path) {
+				assertTrue(deleted.add(path));
+			}
+
+			@Override
+			public void failed(Path path, IOException e) {
+				fail(path + ": " + e);
+			}
+		});
+
+		/* root, link, and per dN: dN, dN/sub, 5 files */
+		assertEquals(2 + 3 * 7, result.getDeleted());
+		assertEquals(result.getDeleted(), deleted.size());
+		assertTrue(result.isComplete());
+		assertTrue(result.getFailures().isEmpty());
+		assertFalse(Files.exists(root));
+		assertTrue(Files.exists(outside.resolve("kept")));
+	}
+
+	@Test
+	public void testDelete_whenPathIsAFile() throws IOException {
+		Path file = root.resolve("d0").resolve("sub").resolve("f0");
+
+		GlusterTreeDeleter.Result result = new GlusterTreeDeleter(1).delete(file, null);
+
+		assertEquals(1, result.getDeleted());
+		assertFalse(Files.exists(file));
+	}
+
+	@Test
+	public void testDelete_whenPathIsMissing() throws IOException {
+		try {
+			new GlusterTreeDeleter(1).delete(root.resolve("missing"), null);
+			fail();
+		} catch (NoSuchFileException e) {
+		}
+	}
+
+	@Test
+	public void testConstructor_whenBatchSizeNotPositive() throws IOException {
+		try {
+			new GlusterTreeDeleter(1, 0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
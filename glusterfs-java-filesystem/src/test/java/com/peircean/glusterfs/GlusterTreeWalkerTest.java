@@ -0,0 +1,185 @@
+package com.peircean.glusterfs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the walker over a small tree on the default file system; it only uses
+ * the Files API, so the provider does not matter.
+ */
+public class GlusterTreeWalkerTest extends TestCase {
+	private Path root;
+
+	@Before
+	@Override
+	public void setUp() throws IOException {
+		root = Files.createTempDirectory("tree-walker");
+		for (int i = 0; i < 3; i++) {
+			Path dir = Files.createDirectories(root.resolve("d" + i).resolve("sub"));
+			for (int j = 0; j < 5; j++) {
+				Files.createFile(dir.resolve("f" + j));
+			}
+			Files.createFile(dir.getParent().resolve("top"));
+		}
+		Files.createDirectory(root.resolve("skip"));
+		Files.createFile(root.resolve("skip").resolve("hidden"));
+	}
+
+	@After
+	@Override
+	public void tearDown() throws IOException {
+		deleteRecursively(root);
+	}
+
+	@Test
+	public void testWalk_visitsEverything() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(4));
+
+		/* root, skip, skip/hidden, and per dN: dN, dN/top, dN/sub, 5 files */
+		assertEquals(3 + 3 * 8, visited.size());
+		assertTrue(visited.contains(root));
+		assertTrue(visited.contains(root.resolve("d2").resolve("sub").resolve("f4")));
+	}
+
+	@Test
+	public void testWalk_withDepthLimit() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(2, 1, null, 16));
+
+		assertEquals(1 + 4, visited.size());
+		assertFalse(visited.contains(root.resolve("d0").resolve("top")));
+	}
+
+	@Test
+	public void testWalk_prunesMatches() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(2, Integer.MAX_VALUE,
+				FileSystems.getDefault().getPathMatcher("glob:**/{skip,sub}"), 16));
+
+		assertEquals(1 + 3 * 2, visited.size());
+		assertFalse(visited.contains(root.resolve("skip").resolve("hidden")));
+	}
+
+	@Test
+	public void testWalk_withTinyQueue() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(8, Integer.MAX_VALUE, null, 1));
+
+		assertEquals(3 + 3 * 8, visited.size());
+	}
+
+	@Test
+	public void testWalk_whenVisitorFails() {
+		final IOException failure = new IOException("stop");
+		try {
+			new GlusterTreeWalker(4, Integer.MAX_VALUE, null, 1).walk(root, new GlusterTreeWalker.Visitor() {
+				private int count;
+
+				@Override
+				public void visit(Path path, BasicFileAttributes attributes) throws IOException {
+					if (++count == 3) {
+						throw failure;
+					}
+				}
+			});
+			fail();
+		} catch (IOException e) {
+			assertSame(failure, e);
+		}
+	}
+
+	@Test
+	public void testWalk_whenEntriesVanish() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(4, Integer.MAX_VALUE, new Vanish("top", "top"), 16));
+
+		/* root, skip, skip/hidden, and per dN: dN, dN/sub, 5 files */
+		assertEquals(3 + 3 * 7, visited.size());
+		assertFalse(visited.contains(root.resolve("d1").resolve("top")));
+	}
+
+	@Test
+	public void testWalk_whenSubdirectoriesVanish() throws IOException {
+		Set<Path> visited = walk(new GlusterTreeWalker(4, Integer.MAX_VALUE, new Vanish("top", "sub"), 16));
+
+		assertTrue(visited.contains(root.resolve("skip").resolve("hidden")));
+		assertTrue(visited.contains(root.resolve("d2").resolve("top")));
+	}
+
+	@Test
+	public void testWalk_whenStartIsAFile() throws IOException {
+		Path file = root.resolve("d0").resolve("top");
+
+		assertEquals(1, new GlusterTreeWalker(2).walk(file, new GlusterTreeWalker.Visitor() {
+			@Override
+			public void visit(Path path, BasicFileAttributes attributes) {
+				assertTrue(attributes.isRegularFile());
+			}
+		}));
+	}
+
+	@Test
+	public void testConstructor_whenParallelismNotPositive() {
+		try {
+			new GlusterTreeWalker(0);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/* when the walker looks at an entry called name, removes its sibling called vanishing; matches nothing */
+	private static final class Vanish implements PathMatcher {
+		private final String name;
+		private final String vanishing;
+
+		Vanish(String name, String vanishing) {
+			this.name = name;
+			this.vanishing = vanishing;
+		}
+
+		@Override
+		public boolean matches(Path path) {
+			if (name.equals(path.getFileName().toString())) {
+				try {
+					deleteRecursively(path.resolveSibling(vanishing));
+				} catch (IOException e) {
+					throw new AssertionError(e);
+				}
+			}
+			return false;
+		}
+	}
+
+	private Set<Path> walk(GlusterTreeWalker walker) throws IOException {
+		final Set<Path> visited = Collections.synchronizedSet(new HashSet<Path>());
+		long count = walker.walk(root, new GlusterTreeWalker.Visitor() {
+			@Override
+			public void visit(Path path, BasicFileAttributes attributes) {
+				assertTrue(visited.add(path));
+			}
+		});
+		assertEquals(visited.size(), count);
+		return visited;
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		if (Files.isDirectory(path)) {
+			try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+				for (Path entry : stream) {
+					deleteRecursively(entry);
+				}
+			}
+		}
+		Files.delete(path);
+	}
+}
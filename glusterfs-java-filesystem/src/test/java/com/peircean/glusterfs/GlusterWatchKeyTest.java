@@ -5,6 +5,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -13,17 +15,22 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.Assert.*;
-import static org.mockito.Matchers.isA;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.when;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({GlusterWatchKey.class, Files.class, LinkedList.class})
+@PrepareForTest({GlusterWatchKey.class, Files.class})
 public class GlusterWatchKeyTest {
     @Mock
     GlusterPath mockPath;
@@ -81,18 +88,15 @@ public class GlusterWatchKeyTest {
         Path onePath = mock(Path.class);
         mockPaths.add(onePath);
 
-        LinkedList<Path> mockFiles = mock(LinkedList.class);
-        PowerMockito.whenNew(LinkedList.class).withNoArguments().thenReturn(mockFiles);
-
         Path mockEventPath = mock(Path.class);
         Set<Path> eventsKeys = new HashSet<Path>();
         eventsKeys.add(mockEventPath);
         HashMap<Path, GlusterWatchEvent> mockEvents = mock(HashMap.class);
         doReturn(eventsKeys).when(mockEvents).keySet();
-        doReturn(deleted).when(key).checkDeleted(mockFiles, mockEventPath);
+        doReturn(deleted).when(key).checkDeleted(any(Set.class), eq(mockEventPath));
         key.setEvents(mockEvents);
 
-        doReturn(existing).when(key).processExistingFile(mockFiles, onePath);
+        doReturn(existing).when(key).processExistingFile(any(Set.class), any(Set.class), eq(onePath));
 
         DirectoryStream<Path> mockDirectoryStream = mock(DirectoryStream.class);
         doReturn(mockPaths.iterator()).when(mockDirectoryStream).iterator();
@@ -109,16 +113,14 @@ public class GlusterWatchKeyTest {
                 assertFalse(key.update());
         }
 
-        verify(mockFiles, never()).add(isA(Path.class));
         verify(mockDirectoryStream).iterator();
-        verify(key).processExistingFile(mockFiles, onePath);
+        verify(mockDirectoryStream).close();
+        verify(key).processExistingFile(any(Set.class), any(Set.class), eq(onePath));
         verify(mockEvents).keySet();
-        verify(key).checkDeleted(mockFiles, mockEventPath);
+        verify(key).checkDeleted(any(Set.class), eq(mockEventPath));
 
         PowerMockito.verifyStatic();
         Files.newDirectoryStream(mockPath);
-
-        PowerMockito.verifyNew(LinkedList.class);
     }
 
     @Test
@@ -137,8 +139,323 @@ public class GlusterWatchKeyTest {
     }
 
     @Test
-    public void testCheckModified() {
+    public void testCheckModified_whenUnchanged() {
+        GlusterWatchEvent event = snapshot(1000L, 7L, 10L);
+
+        assertFalse(key.checkModified(event, 1000L, 7L, 10L));
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, event.kind());
+    }
+
+    @Test
+    public void testCheckModified_whenNewerMtime() {
+        GlusterWatchEvent event = snapshot(1000L, 7L, 10L);
+
+        assertTrue(key.checkModified(event, 2000L, 7L, 10L));
+        assertEquals(StandardWatchEventKinds.ENTRY_MODIFY, event.kind());
+        assertEquals(2000L, event.getLastModified());
+        assertEquals(1, event.count());
+    }
+
+    @Test
+    public void testCheckModified_whenOnlySizeChanged() {
+        GlusterWatchEvent event = snapshot(1000L, 7L, 10L);
+
+        assertTrue(key.checkModified(event, 1000L, 7L, 20L));
+        assertEquals(StandardWatchEventKinds.ENTRY_MODIFY, event.kind());
+        assertTrue(event.getLastModified() > 1000L);
+        assertEquals(20L, event.getSize());
+    }
+
+    @Test
+    public void testCheckModified_whenOnlySizeChanged_keepsServerTime() {
+        GlusterWatchKey key = new GlusterWatchKey(mockPath,
+                new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_MODIFY});
+        /* the server's clock runs five minutes behind this client's */
+        long serverTime = GlusterWatchKey.now() - TimeUnit.MINUTES.toNanos(5);
+        key.setLastPolled(serverTime);
+        GlusterWatchEvent event = snapshot(serverTime - 1000L, 7L, 10L);
+        key.getEvents().put(mock(Path.class), event);
+
+        assertTrue(key.checkModified(event, serverTime - 1000L, 7L, 20L));
+        assertEquals(1, key.findPendingEvents().size());
+        assertEquals(serverTime + 1, key.getLastPolled());
+
+        assertTrue(key.checkModified(event, serverTime + 1000L, 7L, 20L));
+        assertEquals(1, key.findPendingEvents().size());
+    }
+
+    @Test
+    public void testCheckModified_whenReplaced() {
+        GlusterWatchEvent event = snapshot(1000L, 7L, 10L);
+
+        assertTrue(key.checkModified(event, 1000L, 8L, 10L));
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, event.kind());
+        assertEquals(8L, event.getInode());
+    }
+
+    @Test
+    public void testCheckModified_whenBackAfterDelete() {
+        GlusterWatchEvent event = snapshot(1000L, 7L, 10L);
+        event.setKind(StandardWatchEventKinds.ENTRY_DELETE);
+        event.setCount(1);
+
+        assertTrue(key.checkModified(event, 500L, 7L, 10L));
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, event.kind());
+        assertEquals(0, event.count());
+    }
+
+    @Test
+    public void testProcessExistingFile_whenModifiedWithinTheSecond() {
+        Path file = mock(Path.class);
+        long seconds = TimeUnit.MILLISECONDS.toSeconds(new Date().getTime()) + 60L;
+        GlusterFileAttributes earlier = new GlusterFileAttributes(0100644, 0, 0, 10L, seconds, 0L, seconds, 0L,
+                seconds, 100000000L, 7L);
+        GlusterFileAttributes later = new GlusterFileAttributes(0100644, 0, 0, 10L, seconds, 0L, seconds, 0L,
+                seconds, 600000000L, 7L);
+
+        assertTrue(key.processExistingFile(new HashSet<Path>(), new HashSet<Long>(), file, earlier));
+        assertTrue(key.processExistingFile(new HashSet<Path>(), new HashSet<Long>(), file, later));
+
+        GlusterWatchEvent event = key.getEvents().get(file);
+        assertEquals(StandardWatchEventKinds.ENTRY_MODIFY, event.kind());
+        assertEquals(later.lastModifiedTime(), event.lastModifiedTime());
+    }
+
+    @Test
+    public void testUpdate_whenDirectoryUnchanged() throws Exception {
+        doReturn(5000L).when(key).directoryMtime(mockPath);
+        doReturn(true).when(key).directoryUnchanged(mockPath, 5000L);
+        PowerMockito.mockStatic(Files.class);
+
+        assertFalse(key.update());
+
+        PowerMockito.verifyStatic(never());
+        Files.newDirectoryStream(mockPath);
+    }
+
+    @Test
+    public void testUpdate_whenDirectoryUnchangedAndFilesKnown() throws Exception {
+        Path file = mock(Path.class);
+        doReturn(mockPath).when(file).getParent();
+        GlusterWatchEvent event = new GlusterWatchEvent(file);
+        event.setKind(StandardWatchEventKinds.ENTRY_CREATE);
+        event.setLastModified(1000L);
+        key.getEvents().put(file, event);
+        key.setListed(mockPath, 5000L, 5000L + GlusterWatchKey.MTIME_GRANULARITY_MILLIS);
+        doReturn(5000L).when(key).directoryMtime(mockPath);
+        PowerMockito.mockStatic(Files.class);
+
+        assertFalse(key.update());
+
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, event.kind());
+        assertEquals(1000L, event.getLastModified());
+        assertEquals(0, event.getCount());
+        PowerMockito.verifyStatic(never());
+        Files.newDirectoryStream(mockPath);
+    }
+
+    @Test
+    public void testUpdate_whenWatchingModifications() throws Exception {
+        GlusterWatchKey key = PowerMockito.spy(new GlusterWatchKey(mockPath,
+                new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_MODIFY}));
+        PowerMockito.mockStatic(Files.class);
+        when(Files.newDirectoryStream(mockPath)).thenThrow(new IOException());
+
+        assertFalse(key.update());
+
+        verify(key, never()).directoryMtime(mockPath);
+    }
+
+    @Test
+    public void testDirectoryUnchanged() {
+        assertFalse(key.directoryUnchanged(mockPath, 5000L));
+
+        key.setListed(mockPath, 5000L, 5000L + GlusterWatchKey.MTIME_GRANULARITY_MILLIS);
+        assertTrue(key.directoryUnchanged(mockPath, 5000L));
+        assertFalse(key.directoryUnchanged(mockPath, 6000L));
+        assertFalse(key.directoryUnchanged(mockPath, -1L));
+
+        key.setListed(mockPath, 5000L, 5500L);
+        assertFalse(key.directoryUnchanged(mockPath, 5000L));
+    }
+
+    @Test
+    public void testWatchesModifications() {
+        assertFalse(new GlusterWatchKey(mockPath, new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE})
+                .watchesModifications());
+        assertTrue(new GlusterWatchKey(mockPath, new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY}).watchesModifications());
+        assertTrue(new GlusterWatchKey(mockPath).watchesModifications());
+    }
+
+    @Test
+    public void testUpdate_whenRecursive() throws Exception {
+        Path sub = mock(Path.class);
+        Path file = mock(Path.class);
+        Path subFile = mock(Path.class);
+        Path relativeSubFile = mock(Path.class);
+        doReturn(mockPath).when(file).getParent();
+        doReturn(sub).when(subFile).getParent();
+        doReturn(relativeSubFile).when(mockPath).relativize(subFile);
+        GlusterWatchKey key = recursiveKey();
+        DirectoryStream<Path> rootListing = directoryStream(sub, file);
+        DirectoryStream<Path> rootListingAfterDelete = directoryStream(file);
+        DirectoryStream<Path> subListing = directoryStream(subFile);
+        BasicFileAttributes directoryAttributes = attributes(true, 0L);
+        long later = new Date().getTime() + 60000L;
+        BasicFileAttributes fileAttributes = attributes(false, later);
+
+        PowerMockito.mockStatic(Files.class);
+        when(Files.newDirectoryStream(mockPath)).thenReturn(rootListing);
+        when(Files.newDirectoryStream(sub)).thenReturn(subListing);
+        when(Files.readAttributes(sub, BasicFileAttributes.class)).thenReturn(directoryAttributes);
+        when(Files.readAttributes(file, BasicFileAttributes.class)).thenReturn(fileAttributes);
+        when(Files.readAttributes(subFile, BasicFileAttributes.class)).thenReturn(fileAttributes);
+
+        assertTrue(key.update());
+
+        assertEquals(relativeSubFile, key.getEvents().get(subFile).context());
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, key.getEvents().get(subFile).kind());
+        assertTrue(key.getDirectories().contains(sub));
+
+        when(Files.newDirectoryStream(mockPath)).thenReturn(rootListingAfterDelete);
+
+        assertTrue(key.update());
+
+        assertEquals(StandardWatchEventKinds.ENTRY_DELETE, key.getEvents().get(subFile).kind());
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, key.getEvents().get(file).kind());
+        assertFalse(key.getDirectories().contains(sub));
+    }
+
+    @Test
+    public void testReregister_fromRecursiveToPlain() throws Exception {
+        Path sub = mock(Path.class);
+        Path file = mock(Path.class);
+        Path subFile = mock(Path.class);
+        Path fileName = mock(Path.class);
+        doReturn(mockPath).when(file).getParent();
+        doReturn(sub).when(subFile).getParent();
+        doReturn(fileName).when(file).getFileName();
+        GlusterWatchKey key = recursiveKey();
+        DirectoryStream<Path> rootListing = directoryStream(sub, file);
+        DirectoryStream<Path> subListing = directoryStream(subFile);
+        BasicFileAttributes directoryAttributes = attributes(true, 0L);
+        BasicFileAttributes fileAttributes = attributes(false, 0L);
+
+        PowerMockito.mockStatic(Files.class);
+        when(Files.newDirectoryStream(mockPath)).thenReturn(rootListing);
+        when(Files.newDirectoryStream(sub)).thenReturn(subListing);
+        when(Files.readAttributes(sub, BasicFileAttributes.class)).thenReturn(directoryAttributes);
+        when(Files.readAttributes(file, BasicFileAttributes.class)).thenReturn(fileAttributes);
+        when(Files.readAttributes(subFile, BasicFileAttributes.class)).thenReturn(fileAttributes);
+
+        key.update();
+        assertTrue(key.getEvents().containsKey(subFile));
+
+        key.reregister(key.getKinds(), false);
+
+        assertFalse(key.isRecursive());
+        assertFalse(key.getEvents().containsKey(subFile));
+        assertEquals(fileName, key.getEvents().get(file).context());
+        assertFalse(key.getDirectories().contains(sub));
+        assertFalse(key.update());
+        assertEquals(StandardWatchEventKinds.ENTRY_CREATE, key.getEvents().get(file).kind());
+        assertTrue(key.pollEvents().isEmpty());
+    }
+
+    @Test
+    public void testReregister_fromPlainToRecursive() throws Exception {
+        Path sub = mock(Path.class);
+        Path file = mock(Path.class);
+        Path subFile = mock(Path.class);
+        Path relativeFile = mock(Path.class);
+        Path relativeSubFile = mock(Path.class);
+        doReturn(mockPath).when(file).getParent();
+        doReturn(sub).when(subFile).getParent();
+        doReturn(relativeFile).when(mockPath).relativize(file);
+        doReturn(relativeSubFile).when(mockPath).relativize(subFile);
+        GlusterWatchKey key = recursiveKey();
+        key.setRecursive(false);
+        DirectoryStream<Path> rootListing = directoryStream(sub, file);
+        DirectoryStream<Path> subListing = directoryStream(subFile);
+        BasicFileAttributes directoryAttributes = attributes(true, 0L);
+        BasicFileAttributes fileAttributes = attributes(false, 0L);
+
+        PowerMockito.mockStatic(Files.class);
+        when(Files.newDirectoryStream(mockPath)).thenReturn(rootListing);
+        when(Files.newDirectoryStream(sub)).thenReturn(subListing);
+        when(Files.readAttributes(sub, BasicFileAttributes.class)).thenReturn(directoryAttributes);
+        when(Files.readAttributes(file, BasicFileAttributes.class)).thenReturn(fileAttributes);
+        when(Files.readAttributes(subFile, BasicFileAttributes.class)).thenReturn(fileAttributes);
+
+        key.update();
+        assertFalse(key.getEvents().containsKey(subFile));
+
+        key.reregister(key.getKinds(), true);
+
+        assertTrue(key.isRecursive());
+        assertEquals(relativeFile, key.getEvents().get(file).context());
+        assertEquals(relativeSubFile, key.getEvents().get(subFile).context());
+        assertTrue(key.getDirectories().contains(sub));
+        assertFalse(key.update());
+        assertTrue(key.pollEvents().isEmpty());
+    }
+
+    @Test
+    public void testUpdate_whenRecursiveAndDirectoryUnchanged() throws Exception {
+        Path sub = mock(Path.class);
+        GlusterWatchKey key = recursiveKey();
+        DirectoryStream<Path> rootListing = directoryStream(sub);
+        DirectoryStream<Path> subListing = directoryStream();
+        BasicFileAttributes directoryAttributes = attributes(true, 0L);
+
+        PowerMockito.mockStatic(Files.class);
+        when(Files.newDirectoryStream(mockPath)).thenReturn(rootListing);
+        when(Files.newDirectoryStream(sub)).thenReturn(subListing);
+        when(Files.readAttributes(sub, BasicFileAttributes.class)).thenReturn(directoryAttributes);
+
+        assertFalse(key.update());
+        doReturn(true).when(key).directoryUnchanged(mockPath, -1L);
+        assertFalse(key.update());
+
+        PowerMockito.verifyStatic(times(1));
+        Files.newDirectoryStream(mockPath);
+        PowerMockito.verifyStatic(times(2));
+        Files.newDirectoryStream(sub);
+    }
+
+    private GlusterWatchKey recursiveKey() {
+        GlusterWatchKey key = PowerMockito.spy(new GlusterWatchKey(mockPath,
+                new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE}));
+        key.setRecursive(true);
+        doReturn(-1L).when(key).directoryMtime(any(Path.class));
+        return key;
+    }
+
+    private static DirectoryStream<Path> directoryStream(final Path... entries) {
+        DirectoryStream<Path> stream = mock(DirectoryStream.class);
+        when(stream.iterator()).thenAnswer(new Answer<Iterator<Path>>() {
+            @Override
+            public Iterator<Path> answer(InvocationOnMock invocation) {
+                return Arrays.asList(entries).iterator();
+            }
+        });
+        return stream;
+    }
+
+    private static BasicFileAttributes attributes(boolean directory, long lastModified) {
+        BasicFileAttributes attributes = mock(BasicFileAttributes.class);
+        doReturn(directory).when(attributes).isDirectory();
+        doReturn(FileTime.fromMillis(lastModified)).when(attributes).lastModifiedTime();
+        return attributes;
+    }
 
+    private GlusterWatchEvent snapshot(long lastModified, long inode, long size) {
+        GlusterWatchEvent event = new GlusterWatchEvent(mock(Path.class));
+        event.setLastModified(lastModified);
+        event.setInode(inode);
+        event.setSize(size);
+        return event;
     }
 
     @Test
@@ -1,9 +1,11 @@
 package com.peircean.glusterfs;
 
-import org.junit.Assert;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
@@ -13,19 +15,35 @@ import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.powermock.api.mockito.PowerMockito.doReturn;
 import static org.powermock.api.mockito.PowerMockito.mock;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({GlusterWatchService.class, Thread.class})
+@PrepareForTest({GlusterWatchService.class})
 public class GlusterWatchServiceTest {
 
     GlusterWatchService watchService = PowerMockito.spy(new GlusterWatchService());
 
+    @After
+    public void tearDown() throws IOException {
+        watchService.close();
+    }
+
     @Test(expected = ClosedWatchServiceException.class)
     public void testRegisterPath_whenNotRunning() {
         watchService.setRunning(false);
@@ -76,23 +94,6 @@ public class GlusterWatchServiceTest {
         assertFalse(watchService.isRunning());
     }
 
-    @Test
-    public void testPopPending_whenNonePending() {
-        WatchKey key = watchService.popPending();
-        assertEquals(null, key);
-        assertEquals(0, watchService.getPendingPaths().size());
-    }
-
-    @Test
-    public void testPopPending() {
-        GlusterPath mockPath = mock(GlusterPath.class);
-        GlusterWatchKey keyFix = new GlusterWatchKey(mockPath, new WatchEvent.Kind[]{StandardWatchEventKinds.ENTRY_CREATE});
-        watchService.getPendingPaths().add(keyFix);
-        WatchKey key = watchService.popPending();
-        assertEquals(keyFix, key);
-        assertEquals(0, watchService.getPendingPaths().size());
-    }
-
     @Test(expected = ClosedWatchServiceException.class)
     public void testPoll_whenNotRunning() {
         watchService.setRunning(false);
@@ -100,125 +101,386 @@ public class GlusterWatchServiceTest {
     }
 
     @Test
-    public void testPoll_whenPending() {
-        watchService.setRunning(true);
+    public void testPoll_whenSignalled() {
         GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
-        watchService.getPendingPaths().add(mockKey);
-        WatchKey key = watchService.poll();
-        assertEquals(mockKey, key);
+        watchService.signal(mockKey);
+
+        assertEquals(mockKey, watchService.poll());
+        assertNull(watchService.poll());
+
+        Mockito.verify(mockKey).setSignalled(true);
     }
 
     @Test
-    public void testPoll_whenReadyAndEvent() {
-        watchService.setRunning(true);
-        GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
-        watchService.getPaths().add(mockKey);
-        doReturn(null).doReturn(mockKey).when(watchService).popPending();
-        doReturn(true).when(mockKey).isValid();
-        doReturn(true).when(mockKey).isReady();
-        doReturn(true).when(mockKey).update();
-
-        WatchKey key = watchService.poll();
+    public void testScan_whenReadyAndEvent() {
+        GlusterWatchKey mockKey = scannedKey(true);
 
-        assertEquals(mockKey, key);
+        watchService.scan();
 
-        Mockito.verify(mockKey).isValid();
-        Mockito.verify(mockKey).isReady();
+        assertEquals(mockKey, watchService.poll());
         Mockito.verify(mockKey).update();
+        Mockito.verify(mockKey).setSignalled(true);
+        Mockito.verify(mockKey).setQuietScans(0);
     }
 
     @Test
-    public void testPoll_whenReadyAndNoEvent() {
-        watchService.setRunning(true);
-        GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
-        watchService.getPaths().add(mockKey);
-        doReturn(true).when(mockKey).isValid();
-        doReturn(true).when(mockKey).isReady();
-        doReturn(false).when(mockKey).update();
-
-        WatchKey key = watchService.poll();
+    public void testScan_whenReadyAndNoEvent() {
+        GlusterWatchKey mockKey = scannedKey(false);
+        doReturn(2).when(mockKey).getQuietScans();
 
-        assertEquals(null, key);
+        watchService.scan();
 
-        Mockito.verify(mockKey).isValid();
-        Mockito.verify(mockKey).isReady();
+        assertNull(watchService.poll());
         Mockito.verify(mockKey).update();
+        Mockito.verify(mockKey).setQuietScans(3);
     }
 
-    @Test(expected = ClosedWatchServiceException.class)
-    public void testPollTimeout_whenClosed() {
-        long timeout = 150L;
-        TimeUnit unit = TimeUnit.MILLISECONDS;
-        doReturn(timeout).when(watchService).timeoutToMillis(timeout, unit);
-        watchService.setRunning(false);
-        watchService.poll(timeout, unit);
+    @Test
+    public void testScan_whenSignalled() {
+        GlusterWatchKey mockKey = scannedKey(true);
+        doReturn(true).when(mockKey).isSignalled();
+
+        watchService.scan();
+
+        assertNull(watchService.poll());
+        Mockito.verify(mockKey, Mockito.never()).update();
     }
 
     @Test
-    public void testPollTimeout() throws InterruptedException {
-        long timeout = 150L;
-        TimeUnit unit = TimeUnit.MILLISECONDS;
-//        doReturn(timeout).when(watchService).timeoutToMillis(timeout, unit);
+    public void testScan_whenNotDue() {
+        GlusterWatchKey mockKey = scannedKey(true);
+        doReturn(System.nanoTime() + TimeUnit.HOURS.toNanos(1)).when(mockKey).getNextScan();
 
-        WatchKey mockKey = mock(WatchKey.class);
-        PowerMockito.when(watchService.poll()).thenReturn(null).thenReturn(mockKey);
+        watchService.scan();
 
-        PowerMockito.spy(Thread.class);
-        PowerMockito.doThrow(new InterruptedException()).when(Thread.class);
-        Thread.sleep(GlusterWatchService.PERIOD);
+        Mockito.verify(mockKey, Mockito.never()).update();
+    }
+
+    @Test
+    public void testScan_dropsCancelledKeys() {
+        GlusterWatchKey mockKey = scannedKey(true);
+        doReturn(false).when(mockKey).isValid();
+
+        watchService.scan();
+
+        assertTrue(watchService.getPaths().isEmpty());
+        Mockito.verify(mockKey, Mockito.never()).update();
+    }
+
+    @Test
+    public void testScanInterval() {
+        GlusterWatchService watchService = new GlusterWatchService(null, 100, 1000);
+
+        assertEquals(100, watchService.scanInterval(0));
+        assertEquals(200, watchService.scanInterval(1));
+        assertEquals(800, watchService.scanInterval(3));
+        assertEquals(1000, watchService.scanInterval(4));
+        assertEquals(1000, watchService.scanInterval(Integer.MAX_VALUE));
+    }
 
-        WatchKey key = watchService.poll(timeout, unit);
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_whenMaxIntervalShorterThanPeriod() {
+        new GlusterWatchService(null, 100, 50);
+    }
 
-        assertEquals(mockKey, key);
+    @Test(expected = ClosedWatchServiceException.class)
+    public void testPollTimeout_whenClosed() throws InterruptedException {
+        watchService.setRunning(false);
+        watchService.poll(150L, TimeUnit.MILLISECONDS);
+    }
 
-        Mockito.verify(watchService, Mockito.times(2)).poll();
-//        Mockito.verify(watchService).timeoutToMillis(timeout, unit);
+    @Test
+    public void testPollTimeout() throws InterruptedException {
+        assertNull(watchService.poll(10L, TimeUnit.MILLISECONDS));
 
-        PowerMockito.verifyStatic(Mockito.times(1));
-        Thread.sleep(GlusterWatchService.PERIOD);
+        GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
+        watchService.signal(mockKey);
+        assertEquals(mockKey, watchService.poll(10L, TimeUnit.MILLISECONDS));
     }
 
     @Test(expected = ClosedWatchServiceException.class)
-    public void testTake_whenClosed() {
+    public void testTake_whenClosed() throws InterruptedException {
         watchService.setRunning(false);
         watchService.take();
     }
 
     @Test
     public void testTake() throws Exception {
-        WatchKey mockKey = mock(WatchKey.class);
-        doReturn(null).doReturn(mockKey).when(watchService).poll();
+        final GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
+        Thread signaller = new Thread() {
+            @Override
+            public void run() {
+                watchService.signal(mockKey);
+            }
+        };
+        signaller.start();
+
+        assertEquals(mockKey, watchService.take());
+        signaller.join();
+    }
+
+    @Test
+    public void testTake_whenClosedWhileWaiting() throws Exception {
+        final AtomicInteger turnedAway = new AtomicInteger();
+        Thread[] consumers = new Thread[2];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        watchService.take();
+                    } catch (ClosedWatchServiceException e) {
+                        turnedAway.incrementAndGet();
+                    } catch (InterruptedException e) {
+                    }
+                }
+            };
+            consumers[i].start();
+        }
+
+        watchService.close();
+        for (Thread consumer : consumers) {
+            consumer.join(5000);
+        }
+
+        assertEquals(consumers.length, turnedAway.get());
+    }
+
+    @Test
+    public void testRegisterPath_startsScanning() throws IOException {
+        GlusterWatchService watchService = new GlusterWatchService();
+        assertNull(watchService.getScanning());
+
+        watchService.registerPath(mock(GlusterPath.class));
+        assertNotNull(watchService.getScanning());
+
+        watchService.close();
+        assertTrue(watchService.getScanning().isCancelled());
+    }
+
+    @Test
+    public void testRegisterPath_withOwnScheduler() throws IOException {
+        GlusterWatchService first = new GlusterWatchService();
+        GlusterWatchService second = new GlusterWatchService();
+
+        first.registerPath(mock(GlusterPath.class));
+        second.registerPath(mock(GlusterPath.class));
+        assertNotSame(first.getScheduler(), second.getScheduler());
+
+        first.close();
+        assertTrue(first.getScheduler().isShutdown());
+        assertFalse(second.getScheduler().isShutdown());
+        second.close();
+    }
+
+    @Test
+    public void testRegisterPath_whileScanning() throws Exception {
+        GlusterWatchService watchService = new GlusterWatchService();
+        CountDownLatch listing = new CountDownLatch(1);
+        CountDownLatch finishListing = new CountDownLatch(1);
+        CountDownLatch registered = new CountDownLatch(1);
+        watchService.getPaths().add(slowKey(listing, finishListing));
+        Thread scanner = inBackground(scanning(watchService));
+        assertTrue(awaitSeconds(listing, 5));
+
+        inBackground(registeringAndClosing(watchService, registered));
+
+        boolean done = awaitSeconds(registered, 2);
+        finishListing.countDown();
+        scanner.join();
+        assertTrue(done);
+    }
+
+    @Test
+    public void testPoll_whenUpcallNamesWatchedInode() {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource(new long[]{5L});
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+        doReturn(true).when(mockKey).update();
+
+        watchService.scan();
+
+        assertEquals(mockKey, watchService.poll());
+        Mockito.verify(mockKey).update();
+        assertTrue(watchService.getNotified().isEmpty());
+    }
+
+    @Test
+    public void testPoll_whenUpcallNamesOtherInode() {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource(new long[]{6L});
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+
+        watchService.scan();
+
+        assertNull(watchService.poll());
+        Mockito.verify(mockKey, Mockito.never()).update();
+    }
 
-        PowerMockito.spy(Thread.class);
-        PowerMockito.doThrow(new InterruptedException()).when(Thread.class);
-        Thread.sleep(GlusterWatchService.PERIOD);
+    @Test
+    public void testPoll_whenNotifiedKeyNotReady() {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource(new long[]{5L}, new long[0]);
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+        doReturn(false).when(mockKey).isReady();
+        doReturn(true).when(mockKey).update();
+
+        watchService.scan();
+        assertNull(watchService.poll());
+        Mockito.verify(mockKey, Mockito.never()).update();
+
+        doReturn(true).when(mockKey).isReady();
+        watchService.scan();
+        assertEquals(mockKey, watchService.poll());
+        Mockito.verify(mockKey).update();
+    }
+
+    @Test
+    public void testPoll_whenUpcallsFail() {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource();
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+        doReturn(true).when(mockKey).update();
 
-        WatchKey key = watchService.take();
+        watchService.scan();
+
+        assertEquals(mockKey, watchService.poll());
+        assertTrue(upcalls.closed);
+        assertNull(watchService.getUpcalls());
+        Mockito.verify(mockKey).update();
+    }
 
-        assertEquals(mockKey, key);
+    @Test
+    public void testTake_withUpcalls() throws Exception {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource(new long[0], new long[]{5L});
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+        doReturn(true).when(mockKey).update();
 
-        Mockito.verify(watchService, Mockito.times(2)).poll();
+        watchService.scan();
+        assertNull(watchService.poll());
+        watchService.scan();
 
-        PowerMockito.verifyStatic();
-        Thread.sleep(GlusterWatchService.PERIOD);
+        assertEquals(mockKey, watchService.take());
+        assertEquals(Arrays.asList(0L, 0L), upcalls.timeouts);
     }
 
     @Test
-    public void testTimeoutToMillis() {
-        long time = 12345L;
-        Assert.assertEquals(-1,
-                watchService.timeoutToMillis(time, TimeUnit.NANOSECONDS));
-        Assert.assertEquals(-1,
-                watchService.timeoutToMillis(time, TimeUnit.MICROSECONDS));
-        Assert.assertEquals(time,
-                watchService.timeoutToMillis(time, TimeUnit.MILLISECONDS));
-        Assert.assertEquals(time * GlusterWatchService.MILLIS_PER_SECOND,
-                watchService.timeoutToMillis(time, TimeUnit.SECONDS));
-        Assert.assertEquals(time * GlusterWatchService.MILLIS_PER_MINUTE,
-                watchService.timeoutToMillis(time, TimeUnit.MINUTES));
-        Assert.assertEquals(time * GlusterWatchService.MILLIS_PER_HOUR,
-                watchService.timeoutToMillis(time, TimeUnit.HOURS));
-        Assert.assertEquals(time * GlusterWatchService.MILLIS_PER_DAY,
-                watchService.timeoutToMillis(time, TimeUnit.DAYS));
+    public void testIndex_whenKeyCancelled() {
+        GlusterWatchService watchService = new GlusterWatchService(new ScriptedUpcallSource());
+        GlusterWatchKey mockKey = watchedKey(watchService, 5L);
+        doReturn(false).when(mockKey).isValid();
+
+        watchService.index(mockKey);
+
+        assertTrue(watchService.getKeysByInode().isEmpty());
+    }
+
+    @Test
+    public void testClose_withUpcalls() throws IOException {
+        ScriptedUpcallSource upcalls = new ScriptedUpcallSource();
+        GlusterWatchService watchService = new GlusterWatchService(upcalls);
+
+        watchService.close();
+
+        assertTrue(upcalls.closed);
+    }
+
+    private GlusterWatchKey scannedKey(boolean changed) {
+        GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
+        doReturn(true).when(mockKey).isValid();
+        doReturn(true).when(mockKey).isReady();
+        doReturn(changed).when(mockKey).update();
+        watchService.getPaths().add(mockKey);
+        return mockKey;
+    }
+
+    /* a key whose listing takes until finishListing is counted down */
+    private static GlusterWatchKey slowKey(final CountDownLatch listing, final CountDownLatch finishListing) {
+        GlusterWatchKey slowKey = mock(GlusterWatchKey.class);
+        GlusterPath slowPath = mock(GlusterPath.class);
+        doReturn(true).when(slowKey).isValid();
+        doReturn(true).when(slowKey).isReady();
+        doReturn(slowPath).when(slowKey).getPath();
+        Mockito.doAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws InterruptedException {
+                listing.countDown();
+                finishListing.await(5, TimeUnit.SECONDS);
+                return true;
+            }
+        }).when(slowKey).update();
+        return slowKey;
+    }
+
+    private static Runnable scanning(final GlusterWatchService watchService) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                watchService.scan();
+            }
+        };
+    }
+
+    private static Runnable registeringAndClosing(final GlusterWatchService watchService,
+                                                  final CountDownLatch registered) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                watchService.registerPath(mock(GlusterPath.class));
+                try {
+                    watchService.close();
+                } catch (IOException e) {
+                    return;
+                }
+                registered.countDown();
+            }
+        };
+    }
+
+    private static boolean awaitSeconds(CountDownLatch latch, int seconds) throws InterruptedException {
+        return latch.await(seconds, TimeUnit.SECONDS);
+    }
+
+    private static Thread inBackground(Runnable runnable) {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        return thread;
+    }
+
+    private GlusterWatchKey watchedKey(GlusterWatchService watchService, long inode) {
+        GlusterWatchKey mockKey = mock(GlusterWatchKey.class);
+        doReturn(true).when(mockKey).isValid();
+        doReturn(true).when(mockKey).isReady();
+        doReturn(Collections.singleton(inode)).when(mockKey).getInodes();
+        watchService.getPaths().add(mockKey);
+        watchService.index(mockKey);
+        return mockKey;
+    }
+
+    /* hands out the scripted notices in turn, then fails */
+    static class ScriptedUpcallSource implements GlusterUpcallSource {
+        private final Queue<long[]> script;
+        final List<Long> timeouts = new LinkedList<>();
+        boolean closed;
+
+        ScriptedUpcallSource(long[]... notices) {
+            script = new LinkedList<>(Arrays.asList(notices));
+        }
+
+        @Override
+        public long[] await(long timeoutMillis) throws IOException {
+            timeouts.add(timeoutMillis);
+            long[] notices = script.poll();
+            if (null == notices) {
+                throw new IOException("script is over");
+            }
+            return notices;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
     }
 }
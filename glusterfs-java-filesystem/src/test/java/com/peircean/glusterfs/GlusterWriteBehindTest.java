@@ -0,0 +1,97 @@
+package com.peircean.glusterfs;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import junit.framework.TestCase;
+
+public class GlusterWriteBehindTest extends TestCase {
+	private final byte[] file = new byte[4096];
+	private final GlusterFileChannel channel = mock(GlusterFileChannel.class);
+
+	public GlusterWriteBehindTest() throws IOException {
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) throws Throwable {
+				byte[] bytes = (byte[]) invocation.getArguments()[0];
+				int count = (Integer) invocation.getArguments()[1];
+				long offset = (Long) invocation.getArguments()[2];
+				System.arraycopy(bytes, 0, file, (int) offset, count);
+				return null;
+			}
+		}).when(channel).pwriteFully(any(byte[].class), anyInt(), anyLong());
+	}
+
+	@Test
+	public void testCoalescesAdjacentWrites() throws IOException {
+		GlusterWriteBehind writeBehind = new GlusterWriteBehind(channel, 256);
+		byte[] expected = new byte[1000];
+		for (int i = 0; i < 100; i++) {
+			byte[] record = new byte[10];
+			Arrays.fill(record, (byte) i);
+			System.arraycopy(record, 0, expected, i * 10, 10);
+			assertEquals(10, writeBehind.write(ByteBuffer.wrap(record), i * 10));
+		}
+		writeBehind.drain();
+
+		assertTrue(Arrays.equals(expected, Arrays.copyOf(file, 1000)));
+		verify(channel, times(4)).pwriteFully(any(byte[].class), anyInt(), anyLong());
+	}
+
+	@Test
+	public void testFlushesOnNonAdjacentWrite() throws IOException {
+		GlusterWriteBehind writeBehind = new GlusterWriteBehind(channel, 256);
+		writeBehind.write(ByteBuffer.wrap(new byte[] { 1, 2 }), 0);
+		writeBehind.write(ByteBuffer.wrap(new byte[] { 3, 4 }), 100);
+		writeBehind.drain();
+
+		verify(channel).pwriteFully(any(byte[].class), eq(2), eq(0L));
+		verify(channel).pwriteFully(any(byte[].class), eq(2), eq(100L));
+		assertEquals(3, file[100]);
+	}
+
+	@Test
+	public void testLargeWriteBypassesBuffer() throws IOException {
+		GlusterWriteBehind writeBehind = new GlusterWriteBehind(channel, 16);
+		ByteBuffer large = ByteBuffer.allocate(64);
+		when(channel.writeFrom(large, 32L)).thenReturn(64);
+
+		assertEquals(64, writeBehind.write(large, 32));
+
+		verify(channel).writeFrom(large, 32L);
+		verify(channel, never()).pwriteFully(any(byte[].class), anyInt(), anyLong());
+	}
+
+	@Test
+	public void testFailureSurfacesOnNextWrite() throws IOException {
+		doThrow(new IOException("boom")).when(channel).pwriteFully(any(byte[].class), anyInt(), anyLong());
+		GlusterWriteBehind writeBehind = new GlusterWriteBehind(channel, 8);
+		writeBehind.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4 }), 0);
+
+		try {
+			writeBehind.drain();
+			fail("Expected the background failure");
+		} catch (IOException e) {
+			assertEquals("boom", e.getCause().getMessage());
+		}
+		/* reported once */
+		writeBehind.drain();
+	}
+}